@@ -179,7 +179,7 @@ public class ResultProcessor extends ProgramAnalysis {
     private void dumpResult(JMethod method, String id,
                             BiFunction<JMethod, String, ?> resultGetter) {
         out.printf("-------------------- %s (%s) --------------------%n", method, id);
-        Object result = resultGetter.apply(method, id);
+        Object result = toStmts(resultGetter.apply(method, id));
         if (result instanceof Set) {
             ((Set<?>) result).forEach(e -> out.println(toString(e)));
         } else if (result instanceof StmtResult<?> StmtResult) {
@@ -191,6 +191,16 @@ public class ResultProcessor extends ProgramAnalysis {
         out.println();
     }
 
+    /**
+     * Converts an IR result, e.g., the result of IRSimplifier,
+     * to the set of its statements, so that it is processed
+     * like the other results of statements.
+     */
+    private static Object toStmts(Object result) {
+        return result instanceof IR ir ?
+                new LinkedHashSet<>(ir.getStmts()) : result;
+    }
+
     /**
      * Converts an object to string representation.
      * Here we specially handle Stmt by calling IRPrint.toString().
@@ -214,7 +224,7 @@ public class ResultProcessor extends ProgramAnalysis {
     private void compareResult(JMethod method, String id,
                                BiFunction<JMethod, String, ?> resultGetter) {
         Set<String> inputResult = inputs.get(new Pair<>(method.toString(), id));
-        Object result = resultGetter.apply(method, id);
+        Object result = toStmts(resultGetter.apply(method, id));
         if (result instanceof Set) {
             Set<String> given = ((Set<?>) result)
                     .stream()
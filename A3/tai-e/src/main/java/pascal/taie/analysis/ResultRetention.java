@@ -0,0 +1,118 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisRequires;
+import pascal.taie.ir.IR;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Releases the results attached to {@link IR}s once they are no longer
+ * needed by the analyses to be executed.
+ * <p>
+ * The retention policy of a result is given by option "retention" of the
+ * analysis which produces it, i.e., "keep" (default) or "drop".
+ * A dropped result is cleared from the IRs right after the last analysis
+ * that consumes it has finished on all methods. An analysis consumes the
+ * results of the analyses it requires, and
+ * {@link ResultProcessor} also consumes the results of the analyses
+ * given by its option "analyses".
+ * <p>
+ * {@link AnalysisManager} creates the retention from the analyses it
+ * executes, queries {@link #getReleasedResults(String)} after each
+ * analysis, and clears the results from the IRs in scope.
+ */
+public final class ResultRetention {
+
+    private static final Logger logger = LogManager.getLogger(ResultRetention.class);
+
+    /**
+     * Map from analysis ID to IDs of the results that can be released
+     * after the analysis finishes.
+     */
+    private final MultiMap<String, String> releases = Maps.newMultiMap();
+
+    /**
+     * @param configs the analyses to be executed, in execution order.
+     */
+    ResultRetention(List<AnalysisConfig> configs) {
+        MultiMap<String, String> requires = Maps.newMultiMap();
+        configs.forEach(config -> AnalysisRequires.of(config).forEach(
+                require -> requires.put(config.getId(), extractId(require))));
+        for (int i = 0; i < configs.size(); ++i) {
+            AnalysisConfig producer = configs.get(i);
+            if (!"drop".equals(producer.getOptions().get("retention"))) {
+                continue;
+            }
+            String id = producer.getId();
+            String lastConsumer = null;
+            for (AnalysisConfig consumer : configs.subList(i + 1, configs.size())) {
+                if (requires.contains(consumer.getId(), id) ||
+                        consumes(consumer, id)) {
+                    lastConsumer = consumer.getId();
+                }
+            }
+            if (lastConsumer != null) {
+                releases.put(lastConsumer, id);
+                logger.info("Result of {} will be dropped after {} finishes",
+                        id, lastConsumer);
+            }
+        }
+    }
+
+    /**
+     * @param id ID of an analysis
+     * @return IDs of the results which are not needed by the analyses
+     * after the analysis of given ID.
+     */
+    public Set<String> getReleasedResults(String id) {
+        return releases.get(id);
+    }
+
+    /**
+     * @return true if given config is a result processor which
+     * processes the result of analysis id, otherwise false.
+     */
+    private static boolean consumes(AnalysisConfig config, String id) {
+        return config.getId().equals(ResultProcessor.ID) &&
+                config.getOptions().get("analyses") instanceof List<?> analyses &&
+                analyses.contains(id);
+    }
+
+    /**
+     * @return the analysis ID of a requirement, e.g., "pta" for
+     * "pta(algorithm=pta)". The conditions of requirements are ignored,
+     * which may only delay the release of results.
+     */
+    private static String extractId(String require) {
+        int index = require.indexOf('(');
+        return index == -1 ? require.trim() : require.substring(0, index).trim();
+    }
+}
@@ -73,4 +73,16 @@ public interface DataflowAnalysis<Node, Fact> {
      * Edge Transfer function for this analysis.
      */
     Fact transferEdge(Edge<Node> edge, Fact nodeFact);
+
+    /**
+     * Used by conditional solver to decide whether control may flow along
+     * given edge. By default, all edges are considered feasible.
+     *
+     * @param edge   an outgoing edge of a node
+     * @param inFact the flowing-in fact of the source node of the edge
+     * @return true if the edge can be taken under given fact, otherwise false.
+     */
+    default boolean isFeasible(Edge<Node> edge, Fact inFact) {
+        return true;
+    }
 }
@@ -25,7 +25,7 @@ package pascal.taie.analysis.dataflow.analysis;
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
-import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.ConditionalDataflowResult;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.dataflow.fact.SetFact;
 import pascal.taie.analysis.graph.cfg.CFG;
@@ -35,13 +35,14 @@ import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.*;
 import pascal.taie.ir.stmt.AssignStmt;
-import pascal.taie.ir.stmt.If;
 import pascal.taie.ir.stmt.Stmt;
-import pascal.taie.ir.stmt.SwitchStmt;
 
-import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class DeadCodeDetection extends MethodAnalysis {
 
@@ -61,101 +62,58 @@ public class DeadCodeDetection extends MethodAnalysis {
         // obtain result of live variable analysis
         DataflowResult<Stmt, SetFact<Var>> liveVars =
             ir.getResult(LiveVariableAnalysis.ID);
-        // keep statements (dead code) sorted in the resulting set
-        Set<Stmt> deadCode = new TreeSet<>(Comparator.comparing(Stmt::getIndex));
-
-        // data-flow unreachable node
-        Set<Stmt> unreachable = new HashSet<>(cfg.getNodes());
-        // traversed nodes
-        Map<Stmt, Boolean> traversed = new HashMap<>();
-
-        Stack<Stmt> worklist = new Stack<>();
-        Stmt entry = cfg.getEntry();
-        worklist.add(entry);
-
-        unreachable.remove(entry);
-
+        // statements (indexed by Stmt.getIndex()) which are reachable via
+        // feasible edges, each statement is enqueued at most once
+        BitSet reachable = new BitSet(ir.getStmts().size());
+        // reachable statements which are dead assignments
+        BitSet deadAssigns = new BitSet(ir.getStmts().size());
+        Deque<Stmt> worklist = new ArrayDeque<>();
+        worklist.add(cfg.getEntry());
         while (!worklist.isEmpty()) {
-            Stmt stmt = worklist.pop();
-            if (Boolean.TRUE.equals(traversed.putIfAbsent(stmt, true))) {
-                continue;
+            Stmt stmt = worklist.poll();
+            if (stmt instanceof AssignStmt<?, ?> &&
+                stmt.getDef().orElse(null) instanceof Var var &&
+                !liveVars.getOutFact(stmt).contains(var)) {
+                deadAssigns.set(stmt.getIndex());
             }
-
-            cfg.getOutEdgesOf(stmt).forEach(e -> {
-                worklist.add(e.getTarget());
-                unreachable.remove(e.getTarget());
-            });
-
-            if (stmt instanceof If) {
-                ConditionExp exp = ((If) stmt).getCondition();
-                Value val = ConstantPropagation.evaluate(exp, constants.getInFact(stmt));
-                if (val.isConstant()) {
-                    cfg.getOutEdgesOf(stmt).forEach(e -> {
-                        if ((e.getKind() == Edge.Kind.IF_TRUE && val.getConstant() <= 0) || (e.getKind() == Edge.Kind.IF_FALSE && val.getConstant() > 0)) {
-                            // successor is dead code
-                            worklist.remove(e.getTarget());
-                            unreachable.add(e.getTarget());
-                        }
-                    });
-                }
-            } else if (stmt instanceof SwitchStmt) {
-                Var var = ((SwitchStmt) stmt).getVar();
-                Value val = ConstantPropagation.evaluate(var, constants.getInFact(stmt));
-                if (val.isConstant()) {
-                    AtomicBoolean defaultCase = new AtomicBoolean(true);
-                    AtomicInteger caseVal = new AtomicInteger();
-                    ((SwitchStmt) stmt).getCaseTargets().forEach(t -> {
-                        if (val.getConstant() == t.first()) {
-                            defaultCase.set(false);
-                            caseVal.set(t.first());
-                        }
-                    });
-
-                    if (defaultCase.get()) {
-                        // all cases are unreachable
-                        ((SwitchStmt) stmt).getCaseTargets().forEach(t -> {
-                            // successor is dead code
-                            worklist.remove(t.second());
-                            unreachable.add(t.second());
-                        });
-                     } else {
-                        // only the default case and other cases is unreachable
-                        ((SwitchStmt) stmt).getCaseTargets().forEach(t -> {
-                            if (t.first() != caseVal.get()) {
-                                // successor is dead code
-                                worklist.remove(t.second());
-                                unreachable.add(t.second());
-                            }
-                        });
-                        Stmt defaultStmt = ((SwitchStmt) stmt).getDefaultTarget();
-                        worklist.remove(defaultStmt);
-                        unreachable.add(defaultStmt);
-                    }
+            for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                Stmt target = edge.getTarget();
+                if (!cfg.isExit(target) && !reachable.get(target.getIndex())
+                    && isFeasible(edge, constants)) {
+                    reachable.set(target.getIndex());
+                    worklist.add(target);
                 }
-            } else if (stmt instanceof AssignStmt<?,?>) {
-                SetFact<Var> facts = liveVars.getOutFact(stmt);
-                stmt.getDef().ifPresent(l -> {
-                    if (l instanceof Var && !facts.contains((Var)l)) {
-                        unreachable.add(stmt);
-                    }
-                });
             }
         }
-
-        // control flow unreachable node
-        unreachable.forEach(n -> {
-            if (cfg.getExit() != n) {
-                deadCode.add(n);
+        // keep statements (dead code) sorted in the resulting set
+        Set<Stmt> deadCode = new TreeSet<>(Comparator.comparing(Stmt::getIndex));
+        for (Stmt stmt : ir) {
+            int index = stmt.getIndex();
+            if (!reachable.get(index) || deadAssigns.get(index)) {
+                deadCode.add(stmt);
             }
-        });
-
+        }
         return deadCode;
     }
 
+    /**
+     * @return true if control may flow along given edge according to the
+     * result of constant propagation, otherwise false. When the result is
+     * given by the conditional solver, its executable edges are used.
+     */
+    static boolean isFeasible(
+        Edge<Stmt> edge, DataflowResult<Stmt, CPFact> constants) {
+        if (constants instanceof ConditionalDataflowResult<Stmt, CPFact> conditional) {
+            return conditional.isExecutable(edge);
+        }
+        return ConstantPropagation.isFeasibleEdge(
+            edge, constants.getInFact(edge.getSource()));
+    }
+
     /**
      * @return true if given RValue has no side effect, otherwise false.
      */
-    private static boolean hasNoSideEffect(RValue rvalue) {
+    static boolean hasNoSideEffect(RValue rvalue) {
         // new expression modifies the heap
         if (rvalue instanceof NewExp ||
             // cast may trigger ClassCastException
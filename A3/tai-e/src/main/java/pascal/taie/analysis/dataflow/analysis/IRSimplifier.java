@@ -0,0 +1,527 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import pascal.taie.analysis.MethodAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.DefaultIR;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.ArrayAccess;
+import pascal.taie.ir.exp.ArrayLengthExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.BitwiseExp;
+import pascal.taie.ir.exp.CastExp;
+import pascal.taie.ir.exp.ComparisonExp;
+import pascal.taie.ir.exp.ConditionExp;
+import pascal.taie.ir.exp.FieldAccess;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.InstanceOfExp;
+import pascal.taie.ir.exp.InvokeDynamic;
+import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.InvokeInterface;
+import pascal.taie.ir.exp.InvokeSpecial;
+import pascal.taie.ir.exp.InvokeStatic;
+import pascal.taie.ir.exp.InvokeVirtual;
+import pascal.taie.ir.exp.NegExp;
+import pascal.taie.ir.exp.NewArray;
+import pascal.taie.ir.exp.NewExp;
+import pascal.taie.ir.exp.NewMultiArray;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.ShiftExp;
+import pascal.taie.ir.exp.UnaryExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.ExceptionEntry;
+import pascal.taie.ir.stmt.AssignLiteral;
+import pascal.taie.ir.stmt.AssignStmt;
+import pascal.taie.ir.stmt.Binary;
+import pascal.taie.ir.stmt.Cast;
+import pascal.taie.ir.stmt.Catch;
+import pascal.taie.ir.stmt.Copy;
+import pascal.taie.ir.stmt.Goto;
+import pascal.taie.ir.stmt.If;
+import pascal.taie.ir.stmt.InstanceOf;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.LookupSwitch;
+import pascal.taie.ir.stmt.Monitor;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Nop;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StmtVisitor;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.ir.stmt.SwitchStmt;
+import pascal.taie.ir.stmt.TableSwitch;
+import pascal.taie.ir.stmt.Throw;
+import pascal.taie.ir.stmt.Unary;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a simplified {@link IR} from the results of constant propagation
+ * and dead code detection, so that the analyses running after this one
+ * do not need to walk the code which can never be executed.
+ * <p>
+ * The simplified IR is obtained by
+ * <ul>
+ *     <li>folding {@link If} and {@link SwitchStmt} whose conditions are
+ *     constant into {@link Goto} (or removing the {@link If} if only
+ *     its fall-through branch can be taken),</li>
+ *     <li>removing unreachable statements,</li>
+ *     <li>removing dead assignments which have no side effect,</li>
+ *     <li>renumbering the remaining statements.</li>
+ * </ul>
+ * The simplified IR consists of copies of the variables and statements
+ * of the original IR, thus the original IR and the results attached to it
+ * stay valid. The simplified IR is stored as the result of this analysis
+ * on the original IR, and can be dumped or compared by
+ * {@link pascal.taie.analysis.ResultProcessor}.
+ */
+public class IRSimplifier extends MethodAnalysis {
+
+    public static final String ID = "simplify-ir";
+
+    public IRSimplifier(AnalysisConfig config) {
+        super(config);
+    }
+
+    @Override
+    public IR analyze(IR ir) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        DataflowResult<Stmt, CPFact> constants =
+            ir.getResult(ConstantPropagation.ID);
+        Set<Stmt> deadCode = ir.getResult(DeadCodeDetection.ID);
+        List<Stmt> stmts = ir.getStmts();
+        BitSet reachable = findReachable(cfg, constants);
+        // statements which must be kept as they delimit exception entries
+        BitSet pinned = new BitSet(stmts.size());
+        ir.getExceptionEntries().forEach(entry -> {
+            if (reachable.get(entry.handler().getIndex())) {
+                pinned.set(entry.start().getIndex());
+                pinned.set(entry.end().getIndex());
+                pinned.set(entry.handler().getIndex());
+            }
+        });
+        Copier copier = new Copier(ir);
+        // statements of the simplified IR, indexed by the indexes of
+        // the original statements they are derived from, null for
+        // removed statements
+        Stmt[] newStmts = new Stmt[stmts.size()];
+        // original jump targets of the statements in newStmts,
+        // for a SwitchStmt, the case targets followed by the default target
+        List<List<Stmt>> targets =
+            new ArrayList<>(Collections.nCopies(stmts.size(), null));
+        for (Stmt stmt : stmts) {
+            int index = stmt.getIndex();
+            if (!reachable.get(index) || isRemovableAssign(stmt, deadCode)) {
+                if (pinned.get(index)) {
+                    // keep a placeholder, so that the exception entry
+                    // still covers the same range of statements
+                    newStmts[index] = new Nop();
+                }
+            } else if ((stmt instanceof If || stmt instanceof SwitchStmt) &&
+                isFoldable(stmt, cfg, constants)) {
+                Stmt target = getFeasibleTarget(stmt, cfg, constants);
+                if (target != null) {
+                    newStmts[index] = new Goto();
+                    targets.set(index, List.of(target));
+                } else if (pinned.get(index)) {
+                    newStmts[index] = new Nop();
+                }
+            } else {
+                newStmts[index] = stmt.accept(copier);
+                if (stmt instanceof Goto jump) {
+                    targets.set(index, List.of(jump.getTarget()));
+                } else if (stmt instanceof If ifStmt) {
+                    targets.set(index, List.of(ifStmt.getTarget()));
+                } else if (stmt instanceof SwitchStmt switchStmt) {
+                    List<Stmt> switchTargets =
+                        new ArrayList<>(switchStmt.getTargets());
+                    switchTargets.add(switchStmt.getDefaultTarget());
+                    targets.set(index, switchTargets);
+                }
+            }
+            if (newStmts[index] != null) {
+                newStmts[index].setLineNumber(stmt.getLineNumber());
+            }
+        }
+        // next[i] is the first statement of the simplified IR
+        // at or after original index i
+        Stmt[] next = new Stmt[stmts.size()];
+        for (int i = stmts.size() - 1; i >= 0; --i) {
+            next[i] = newStmts[i] != null ? newStmts[i] :
+                (i + 1 < stmts.size() ? next[i + 1] : null);
+        }
+        List<Stmt> simplified = new ArrayList<>();
+        for (int i = 0; i < newStmts.length; ++i) {
+            Stmt stmt = newStmts[i];
+            if (stmt != null) {
+                if (targets.get(i) != null) {
+                    setTargets(stmt, targets.get(i), next);
+                }
+                stmt.setIndex(simplified.size());
+                simplified.add(stmt);
+            }
+        }
+        List<ExceptionEntry> entries = new ArrayList<>();
+        ir.getExceptionEntries().forEach(entry -> {
+            if (reachable.get(entry.handler().getIndex())) {
+                entries.add(new ExceptionEntry(
+                    next[entry.start().getIndex()],
+                    next[entry.end().getIndex()],
+                    (Catch) next[entry.handler().getIndex()],
+                    entry.catchType()));
+            }
+        });
+        Set<Var> returnVars = new LinkedHashSet<>();
+        ir.getReturnVars().forEach(v -> returnVars.add(copier.getVar(v)));
+        return new DefaultIR(ir.getMethod(),
+            ir.getThis() == null ? null : copier.getVar(ir.getThis()),
+            ir.getParams().stream().map(copier::getVar).toList(),
+            returnVars,
+            ir.getVars().stream().map(copier::getVar).toList(),
+            simplified, entries);
+    }
+
+    /**
+     * @return statements (indexed by Stmt.getIndex()) which are reachable
+     * from the entry of given CFG via feasible edges.
+     */
+    private static BitSet findReachable(
+        CFG<Stmt> cfg, DataflowResult<Stmt, CPFact> constants) {
+        BitSet reachable = new BitSet(cfg.getIR().getStmts().size());
+        Deque<Stmt> worklist = new ArrayDeque<>();
+        worklist.add(cfg.getEntry());
+        while (!worklist.isEmpty()) {
+            Stmt stmt = worklist.poll();
+            for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                Stmt target = edge.getTarget();
+                if (!cfg.isExit(target) && !reachable.get(target.getIndex())
+                    && DeadCodeDetection.isFeasible(edge, constants)) {
+                    reachable.set(target.getIndex());
+                    worklist.add(target);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * @return true if given statement is a dead assignment
+     * without side effect, otherwise false.
+     */
+    private static boolean isRemovableAssign(Stmt stmt, Set<Stmt> deadCode) {
+        return stmt instanceof AssignStmt<?, ?> assign &&
+            deadCode.contains(stmt) &&
+            DeadCodeDetection.hasNoSideEffect(assign.getRValue());
+    }
+
+    /**
+     * @return true if only one out edge of given branch statement
+     * is feasible, otherwise false.
+     */
+    private static boolean isFoldable(
+        Stmt branch, CFG<Stmt> cfg, DataflowResult<Stmt, CPFact> constants) {
+        return cfg.getOutEdgesOf(branch)
+            .stream()
+            .filter(edge -> DeadCodeDetection.isFeasible(edge, constants))
+            .count() == 1;
+    }
+
+    /**
+     * @return the target of the only feasible out edge of given foldable
+     * branch statement, or null if the edge is the fall-through
+     * branch of an {@link If}.
+     */
+    private static Stmt getFeasibleTarget(
+        Stmt branch, CFG<Stmt> cfg, DataflowResult<Stmt, CPFact> constants) {
+        Edge<Stmt> edge = cfg.getOutEdgesOf(branch)
+            .stream()
+            .filter(e -> DeadCodeDetection.isFeasible(e, constants))
+            .findFirst()
+            .orElseThrow();
+        return edge.getKind() == Edge.Kind.IF_FALSE ? null : edge.getTarget();
+    }
+
+    /**
+     * Sets the jump targets of given statement of the simplified IR
+     * to the statements corresponding to the original targets.
+     */
+    private static void setTargets(Stmt stmt, List<Stmt> targets, Stmt[] next) {
+        if (stmt instanceof Goto jump) {
+            jump.setTarget(resolve(targets.get(0), next));
+        } else if (stmt instanceof If ifStmt) {
+            ifStmt.setTarget(resolve(targets.get(0), next));
+        } else if (stmt instanceof SwitchStmt switchStmt) {
+            int caseCount = targets.size() - 1;
+            switchStmt.setTargets(targets.subList(0, caseCount)
+                .stream()
+                .map(target -> resolve(target, next))
+                .toList());
+            switchStmt.setDefaultTarget(resolve(targets.get(caseCount), next));
+        }
+    }
+
+    private static Stmt resolve(Stmt target, Stmt[] next) {
+        Stmt newTarget = next[target.getIndex()];
+        if (newTarget == null) {
+            throw new AnalysisException("No statement remains at or after "
+                + target + " in the simplified IR");
+        }
+        return newTarget;
+    }
+
+    /**
+     * Copies statements of an IR with fresh variables. Jump targets,
+     * indexes and line numbers of the copies are left to the caller.
+     * The immutable parts of expressions, e.g., literals, method and
+     * field references, are shared with the original IR.
+     */
+    private static class Copier implements StmtVisitor<Stmt> {
+
+        private final Map<Var, Var> varMap = Maps.newMap();
+
+        private Copier(IR ir) {
+            ir.getVars().forEach(v -> varMap.put(v, new Var(v.getMethod(),
+                v.getName(), v.getType(), v.getIndex(),
+                v.isTempConst() ? v.getTempConstValue() : null)));
+        }
+
+        private Var getVar(Var var) {
+            return varMap.get(var);
+        }
+
+        private List<Var> getVars(List<Var> vars) {
+            return vars.stream().map(this::getVar).toList();
+        }
+
+        @Override
+        public Stmt visit(New stmt) {
+            return new New(stmt.getContainer(), getVar(stmt.getLValue()),
+                (NewExp) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(AssignLiteral stmt) {
+            return new AssignLiteral(getVar(stmt.getLValue()), stmt.getRValue());
+        }
+
+        @Override
+        public Stmt visit(Copy stmt) {
+            return new Copy(getVar(stmt.getLValue()), getVar(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(LoadArray stmt) {
+            return new LoadArray(getVar(stmt.getLValue()),
+                (ArrayAccess) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(StoreArray stmt) {
+            return new StoreArray((ArrayAccess) copy(stmt.getLValue()),
+                getVar(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(LoadField stmt) {
+            return new LoadField(getVar(stmt.getLValue()),
+                (FieldAccess) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(StoreField stmt) {
+            return new StoreField((FieldAccess) copy(stmt.getLValue()),
+                getVar(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(Binary stmt) {
+            return new Binary(getVar(stmt.getLValue()),
+                (BinaryExp) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(Unary stmt) {
+            return new Unary(getVar(stmt.getLValue()),
+                (UnaryExp) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(InstanceOf stmt) {
+            return new InstanceOf(getVar(stmt.getLValue()),
+                (InstanceOfExp) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(Cast stmt) {
+            return new Cast(getVar(stmt.getLValue()),
+                (CastExp) copy(stmt.getRValue()));
+        }
+
+        @Override
+        public Stmt visit(Goto stmt) {
+            return new Goto();
+        }
+
+        @Override
+        public Stmt visit(If stmt) {
+            return new If((ConditionExp) copy(stmt.getCondition()));
+        }
+
+        @Override
+        public Stmt visit(TableSwitch stmt) {
+            return new TableSwitch(getVar(stmt.getVar()),
+                stmt.getLowIndex(), stmt.getHighIndex());
+        }
+
+        @Override
+        public Stmt visit(LookupSwitch stmt) {
+            return new LookupSwitch(getVar(stmt.getVar()), stmt.getCaseValues());
+        }
+
+        @Override
+        public Stmt visit(Invoke stmt) {
+            InvokeExp invokeExp = (InvokeExp) copy(stmt.getInvokeExp());
+            return stmt.getResult() == null ?
+                new Invoke(stmt.getContainer(), invokeExp) :
+                new Invoke(stmt.getContainer(), invokeExp,
+                    getVar(stmt.getResult()));
+        }
+
+        @Override
+        public Stmt visit(Return stmt) {
+            return stmt.getValue() == null ? new Return() :
+                new Return(getVar(stmt.getValue()));
+        }
+
+        @Override
+        public Stmt visit(Throw stmt) {
+            return new Throw(getVar(stmt.getExceptionRef()));
+        }
+
+        @Override
+        public Stmt visit(Catch stmt) {
+            return new Catch(getVar(stmt.getExceptionRef()));
+        }
+
+        @Override
+        public Stmt visit(Monitor stmt) {
+            return new Monitor(stmt.isEnter() ? Monitor.Op.ENTER : Monitor.Op.EXIT,
+                getVar(stmt.getObjectRef()));
+        }
+
+        @Override
+        public Stmt visit(Nop stmt) {
+            return new Nop();
+        }
+
+        @Override
+        public Stmt visitDefault(Stmt stmt) {
+            throw new AnalysisException("Cannot copy " + stmt);
+        }
+
+        /**
+         * @return a copy of given expression with the variables replaced
+         * by their copies, or the expression itself if it has no variables.
+         */
+        private RValue copy(RValue exp) {
+            if (exp instanceof Var var) {
+                return getVar(var);
+            } else if (exp instanceof InstanceFieldAccess access) {
+                return new InstanceFieldAccess(access.getFieldRef(),
+                    getVar(access.getBase()));
+            } else if (exp instanceof ArrayAccess access) {
+                return new ArrayAccess(getVar(access.getBase()),
+                    getVar(access.getIndex()));
+            } else if (exp instanceof NewArray newArray) {
+                return new NewArray(newArray.getType(),
+                    getVar(newArray.getLength()));
+            } else if (exp instanceof NewMultiArray newMultiArray) {
+                return new NewMultiArray(newMultiArray.getType(),
+                    getVars(newMultiArray.getLengths()));
+            } else if (exp instanceof ArithmeticExp e) {
+                return new ArithmeticExp(e.getOperator(),
+                    getVar(e.getOperand1()), getVar(e.getOperand2()));
+            } else if (exp instanceof BitwiseExp e) {
+                return new BitwiseExp(e.getOperator(),
+                    getVar(e.getOperand1()), getVar(e.getOperand2()));
+            } else if (exp instanceof ComparisonExp e) {
+                return new ComparisonExp(e.getOperator(),
+                    getVar(e.getOperand1()), getVar(e.getOperand2()));
+            } else if (exp instanceof ConditionExp e) {
+                return new ConditionExp(e.getOperator(),
+                    getVar(e.getOperand1()), getVar(e.getOperand2()));
+            } else if (exp instanceof ShiftExp e) {
+                return new ShiftExp(e.getOperator(),
+                    getVar(e.getOperand1()), getVar(e.getOperand2()));
+            } else if (exp instanceof NegExp e) {
+                return new NegExp(getVar(e.getOperand()));
+            } else if (exp instanceof ArrayLengthExp e) {
+                return new ArrayLengthExp(getVar(e.getBase()));
+            } else if (exp instanceof InstanceOfExp e) {
+                return new InstanceOfExp(getVar(e.getValue()), e.getCheckedType());
+            } else if (exp instanceof CastExp e) {
+                return new CastExp(getVar(e.getValue()), e.getCastType());
+            } else if (exp instanceof InvokeVirtual e) {
+                return new InvokeVirtual(e.getMethodRef(),
+                    getVar(e.getBase()), getVars(e.getArgs()));
+            } else if (exp instanceof InvokeInterface e) {
+                return new InvokeInterface(e.getMethodRef(),
+                    getVar(e.getBase()), getVars(e.getArgs()));
+            } else if (exp instanceof InvokeSpecial e) {
+                return new InvokeSpecial(e.getMethodRef(),
+                    getVar(e.getBase()), getVars(e.getArgs()));
+            } else if (exp instanceof InvokeStatic e) {
+                return new InvokeStatic(e.getMethodRef(), getVars(e.getArgs()));
+            } else if (exp instanceof InvokeDynamic e) {
+                return new InvokeDynamic(e.getBootstrapMethodRef(),
+                    e.getMethodName(), e.getMethodType(),
+                    e.getBootstrapArgs(), getVars(e.getArgs()));
+            } else {
+                // literals, static field accesses and new instances
+                // do not contain variables
+                return exp;
+            }
+        }
+    }
+}
@@ -23,20 +23,73 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.analysis.AbstractDataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.fact.ConditionalDataflowResult;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.NodeResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.dataflow.solver.Solver;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.*;
+import pascal.taie.ir.stmt.If;
 import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
 import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
 
+import java.util.List;
+
 public class ConstantPropagation extends
     AbstractDataflowAnalysis<Stmt, CPFact> {
 
     public static final String ID = "constprop";
 
+    /**
+     * Whether drop the variables that are dead after each statement
+     * from the OUT fact of the statement.
+     */
+    private final boolean pruneDead;
+
+    /**
+     * Whether only propagate facts along the edges which can be taken
+     * under the constant values of branch conditions.
+     */
+    private final boolean conditional;
+
     public ConstantPropagation(AnalysisConfig config) {
         super(config);
+        pruneDead = getOptions().getBooleanOrDefault("prune-dead", false);
+        conditional = getOptions().getBooleanOrDefault("conditional", false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In conditional mode, the result is a {@link ConditionalDataflowResult}
+     * which also contains the executable edges of the CFG.
+     */
+    @Override
+    public DataflowResult<Stmt, CPFact> analyze(IR ir) {
+        if (!pruneDead && !conditional) {
+            return super.analyze(ir);
+        }
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        DataflowAnalysis<Stmt, CPFact> analysis = this;
+        if (pruneDead) {
+            // live variable analysis is required when prune-dead is enabled
+            NodeResult<Stmt, SetFact<Var>> liveVars =
+                ir.getResult(LiveVariableAnalysis.ID);
+            analysis = new LivenessPruning(liveVars);
+        }
+        Solver<Stmt, CPFact> solver = conditional ?
+            Solver.makeConditionalSolver(analysis) :
+            Solver.makeSolver(analysis);
+        return solver.solve(cfg);
     }
 
     @Override
@@ -86,6 +139,38 @@ public class ConstantPropagation extends
         return ret;
     }
 
+    @Override
+    public boolean isFeasible(Edge<Stmt> edge, CPFact inFact) {
+        return isFeasibleEdge(edge, inFact);
+    }
+
+    /**
+     * @return false if given edge is an out edge of {@link If} or
+     * {@link SwitchStmt} which cannot be taken under the IN fact
+     * of the statement, otherwise true.
+     */
+    public static boolean isFeasibleEdge(Edge<Stmt> edge, CPFact in) {
+        Stmt source = edge.getSource();
+        if (source instanceof If ifStmt) {
+            Value cond = evaluate(ifStmt.getCondition(), in);
+            if (cond.isConstant()) {
+                boolean taken = cond.getConstant() > 0;
+                return edge.getKind() == Edge.Kind.IF_TRUE ? taken : !taken;
+            }
+        } else if (source instanceof SwitchStmt switchStmt) {
+            Value var = evaluate(switchStmt.getVar(), in);
+            if (var.isConstant()) {
+                int value = var.getConstant();
+                if (edge.isSwitchCase()) {
+                    return edge.getCaseValue() == value;
+                } else if (edge.getKind() == Edge.Kind.SWITCH_DEFAULT) {
+                    return !switchStmt.getCaseValues().contains(value);
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
         CPFact outCopy = out.copy();
@@ -101,6 +186,80 @@ public class ConstantPropagation extends
         return !out.equals(outCopy);
     }
 
+    /**
+     * Removes the variables which are not in {@code live} from {@code fact}.
+     */
+    private static void prune(CPFact fact, SetFact<Var> live) {
+        List<Var> dead = fact.keySet()
+            .stream()
+            .filter(var -> !live.contains(var))
+            .toList();
+        dead.forEach(fact::remove);
+    }
+
+    /**
+     * Constant propagation which drops the entries of dead variables
+     * from the OUT fact of each statement, so that the size of facts is
+     * bounded by the number of live variables.
+     * <p>
+     * Values of the live variables are unaffected: a variable live at
+     * the IN of a statement is live at the OUT of all its predecessors,
+     * thus it is never dropped on its way to the statement.
+     * The liveness is given per method, so a new instance is created
+     * for each analyzed method.
+     */
+    private class LivenessPruning implements DataflowAnalysis<Stmt, CPFact> {
+
+        private final NodeResult<Stmt, SetFact<Var>> liveVars;
+
+        private LivenessPruning(NodeResult<Stmt, SetFact<Var>> liveVars) {
+            this.liveVars = liveVars;
+        }
+
+        @Override
+        public boolean isForward() {
+            return ConstantPropagation.this.isForward();
+        }
+
+        @Override
+        public CPFact newBoundaryFact(CFG<Stmt> cfg) {
+            return ConstantPropagation.this.newBoundaryFact(cfg);
+        }
+
+        @Override
+        public CPFact newInitialFact() {
+            return ConstantPropagation.this.newInitialFact();
+        }
+
+        @Override
+        public void meetInto(CPFact fact, CPFact target) {
+            ConstantPropagation.this.meetInto(fact, target);
+        }
+
+        @Override
+        public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
+            CPFact outCopy = out.copy();
+            ConstantPropagation.this.transferNode(stmt, in, out);
+            prune(out, liveVars.getOutFact(stmt));
+            return !out.equals(outCopy);
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Stmt> edge) {
+            return ConstantPropagation.this.needTransferEdge(edge);
+        }
+
+        @Override
+        public CPFact transferEdge(Edge<Stmt> edge, CPFact nodeFact) {
+            return ConstantPropagation.this.transferEdge(edge, nodeFact);
+        }
+
+        @Override
+        public boolean isFeasible(Edge<Stmt> edge, CPFact inFact) {
+            return ConstantPropagation.this.isFeasible(edge, inFact);
+        }
+    }
+
     /**
      * @return true if the given variable can hold integer value, otherwise false.
      */
@@ -0,0 +1,61 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Data-flow result which also records the CFG edges that are found
+ * executable by a conditional solver.
+ */
+public class ConditionalDataflowResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private final Set<Edge<Node>> executableEdges = Sets.newSet();
+
+    /**
+     * @return true if given edge is executable, otherwise false.
+     */
+    public boolean isExecutable(Edge<Node> edge) {
+        return executableEdges.contains(edge);
+    }
+
+    /**
+     * Marks given edge as executable.
+     *
+     * @return true if the edge was not executable before, otherwise false.
+     */
+    public boolean setExecutable(Edge<Node> edge) {
+        return executableEdges.add(edge);
+    }
+
+    /**
+     * @return an unmodifiable view of all executable edges.
+     */
+    public Set<Edge<Node>> getExecutableEdges() {
+        return Collections.unmodifiableSet(executableEdges);
+    }
+}
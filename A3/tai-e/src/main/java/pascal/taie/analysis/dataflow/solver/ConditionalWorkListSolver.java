@@ -0,0 +1,93 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.ConditionalDataflowResult;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.SetQueue;
+
+import java.util.Queue;
+
+/**
+ * Work-list solver which tracks executable edges, in the style of
+ * sparse conditional constant propagation. A node is only analyzed
+ * after one of its incoming edges becomes executable, facts only flow
+ * along executable edges, and an outgoing edge becomes executable when
+ * {@link DataflowAnalysis#isFeasible} holds for the IN fact of its source.
+ * The executable edges are available in the resulting
+ * {@link ConditionalDataflowResult}.
+ * <p>
+ * Only forward analyses are supported.
+ */
+class ConditionalWorkListSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    ConditionalWorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    protected DataflowResult<Node, Fact> newResult() {
+        return new ConditionalDataflowResult<>();
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        ConditionalDataflowResult<Node, Fact> conditional =
+            (ConditionalDataflowResult<Node, Fact>) result;
+        Queue<Node> wl = new SetQueue<>();
+        wl.add(cfg.getEntry());
+        while (!wl.isEmpty()) {
+            Node node = wl.poll();
+            // meet out of predecessors along executable edges
+            Fact in = result.getInFact(node);
+            for (Edge<Node> edge : cfg.getInEdgesOf(node)) {
+                if (conditional.isExecutable(edge)) {
+                    Fact predOut = result.getOutFact(edge.getSource());
+                    analysis.meetInto(analysis.needTransferEdge(edge) ?
+                        analysis.transferEdge(edge, predOut) : predOut, in);
+                }
+            }
+            boolean changed = analysis.transferNode(
+                node, in, result.getOutFact(node));
+            for (Edge<Node> edge : cfg.getOutEdgesOf(node)) {
+                if (conditional.isExecutable(edge)) {
+                    if (changed) {
+                        wl.add(edge.getTarget());
+                    }
+                } else if (analysis.isFeasible(edge, in)) {
+                    conditional.setExecutable(edge);
+                    wl.add(edge.getTarget());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        throw new UnsupportedOperationException(
+            "Conditional solver does not support backward analysis");
+    }
+}
@@ -49,6 +49,17 @@ public abstract class Solver<Node, Fact> {
         return new WorkListSolver<>(analysis);
     }
 
+    /**
+     * Static factory method to create a new conditional solver for given
+     * analysis, which only propagates facts along feasible edges.
+     *
+     * @see ConditionalWorkListSolver
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeConditionalSolver(
+        DataflowAnalysis<Node, Fact> analysis) {
+        return new ConditionalWorkListSolver<>(analysis);
+    }
+
     /**
      * Starts this solver on the given CFG.
      *
@@ -67,7 +78,7 @@ public abstract class Solver<Node, Fact> {
      * @return the initialized data-flow result
      */
     private DataflowResult<Node, Fact> initialize(CFG<Node> cfg) {
-        DataflowResult<Node, Fact> result = new DataflowResult<>();
+        DataflowResult<Node, Fact> result = newResult();
         if (analysis.isForward()) {
             initializeForward(cfg, result);
         } else {
@@ -76,6 +87,13 @@ public abstract class Solver<Node, Fact> {
         return result;
     }
 
+    /**
+     * @return a new empty data-flow result.
+     */
+    protected DataflowResult<Node, Fact> newResult() {
+        return new DataflowResult<>();
+    }
+
     /**
      * Initializes the forward data-flow for constant propagation analysis
      * @param cfg
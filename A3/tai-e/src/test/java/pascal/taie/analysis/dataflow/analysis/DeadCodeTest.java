@@ -22,8 +22,12 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.ir.IR;
 
 public class DeadCodeTest {
 
@@ -34,6 +38,28 @@ public class DeadCodeTest {
                 "-a", "constprop=edge-refine:false");
     }
 
+    /**
+     * Dropping dead variables from constant propagation facts
+     * must not change the detected dead code.
+     */
+    void testDCDPruneDead(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false;prune-dead:true");
+    }
+
+    /**
+     * Conditional constant propagation must not change the detected
+     * dead code.
+     */
+    void testDCDConditional(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false;conditional:true");
+    }
+
     @Test
     public void testControlFlowUnreachable() {
         testDCD("ControlFlowUnreachable");
@@ -58,4 +84,51 @@ public class DeadCodeTest {
     public void testLoops() {
         testDCD("Loops");
     }
+
+    @Test
+    public void testPruneDeadDeadAssignment() {
+        testDCDPruneDead("DeadAssignment");
+    }
+
+    @Test
+    public void testPruneDeadLoops() {
+        testDCDPruneDead("Loops");
+    }
+
+    @Test
+    public void testPruneDeadUnreachableSwitchBranch() {
+        testDCDPruneDead("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testDropResults() {
+        Tests.test("DeadAssignment", "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false;retention:drop",
+                "-a", "constprop=edge-refine:false;retention:drop");
+        World.get().getClassHierarchy()
+                .getClass("DeadAssignment")
+                .getDeclaredMethods()
+                .forEach(m -> {
+                    IR ir = m.getIR();
+                    Assert.assertNull(ir.getResult(LiveVariableAnalysis.ID));
+                    Assert.assertNull(ir.getResult(ConstantPropagation.ID));
+                    Assert.assertNotNull(ir.getResult(DeadCodeDetection.ID));
+                });
+    }
+
+    @Test
+    public void testConditionalUnreachableIfBranch() {
+        testDCDConditional("UnreachableIfBranch");
+    }
+
+    @Test
+    public void testConditionalUnreachableSwitchBranch() {
+        testDCDConditional("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testConditionalLoops() {
+        testDCDConditional("Loops");
+    }
 }
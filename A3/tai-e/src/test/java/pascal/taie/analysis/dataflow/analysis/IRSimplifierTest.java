@@ -0,0 +1,97 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.dataflow.analysis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.Tests;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.JumpStmt;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class IRSimplifierTest {
+
+    /**
+     * Runs IR simplification on given test case and checks the simplified
+     * IR of each method against its original IR. All dead code in the test
+     * cases is expected to be removed.
+     */
+    void test(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false",
+                "-a", IRSimplifier.ID);
+        World.get().getClassHierarchy()
+                .getClass(inputClass)
+                .getDeclaredMethods()
+                .forEach(m -> checkSimplifiedIR(m.getIR()));
+    }
+
+    private static void checkSimplifiedIR(IR ir) {
+        IR simplified = ir.getResult(IRSimplifier.ID);
+        Set<Stmt> deadCode = ir.getResult(DeadCodeDetection.ID);
+        List<Stmt> stmts = ir.getStmts();
+        List<Stmt> newStmts = simplified.getStmts();
+        // the original IR is left intact
+        for (int i = 0; i < stmts.size(); ++i) {
+            Assert.assertEquals(i, stmts.get(i).getIndex());
+        }
+        Assert.assertEquals(stmts.size() - deadCode.size(), newStmts.size());
+        // the simplified IR consists of its own statements and variables,
+        // and its jump targets point into itself
+        Set<Stmt> oldStmts = new HashSet<>(stmts);
+        for (int i = 0; i < newStmts.size(); ++i) {
+            Stmt stmt = newStmts.get(i);
+            Assert.assertEquals(i, stmt.getIndex());
+            Assert.assertFalse(oldStmts.contains(stmt));
+            if (stmt instanceof JumpStmt jump) {
+                jump.getTargets().forEach(target ->
+                        Assert.assertSame(target, newStmts.get(target.getIndex())));
+            }
+        }
+        simplified.getVars().forEach(v ->
+                Assert.assertFalse(ir.getVars().contains(v)));
+    }
+
+    @Test
+    public void testDeadAssignment() {
+        test("DeadAssignment");
+    }
+
+    @Test
+    public void testUnreachableIfBranch() {
+        test("UnreachableIfBranch");
+    }
+
+    @Test
+    public void testUnreachableSwitchBranch() {
+        test("UnreachableSwitchBranch");
+    }
+}
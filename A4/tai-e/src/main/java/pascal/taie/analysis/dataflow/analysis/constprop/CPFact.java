@@ -25,8 +25,15 @@ package pascal.taie.analysis.dataflow.analysis.constprop;
 import pascal.taie.analysis.dataflow.fact.MapFact;
 import pascal.taie.ir.exp.Var;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 /**
  * Represents data facts of constant propagation, which maps variables
@@ -40,6 +47,11 @@ import java.util.Map;
  */
 public class CPFact extends MapFact<Var, Value> {
 
+    /**
+     * The empty CPFact which cannot be modified.
+     */
+    private static final CPFact EMPTY = new CPFact(Collections.emptyMap(), false);
+
     public CPFact() {
         this(Collections.emptyMap());
     }
@@ -48,6 +60,43 @@ public class CPFact extends MapFact<Var, Value> {
         super(map);
     }
 
+    private CPFact(Map<Var, Value> map, boolean copy) {
+        super(map, copy);
+    }
+
+    /**
+     * @return the empty CPFact which cannot be modified, which can be
+     * shared by the nodes whose facts are empty.
+     */
+    public static CPFact empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return an unmodifiable view of given fact which maps given variable
+     * to UNDEF, i.e., the view does not copy the mappings of the fact.
+     */
+    public static CPFact viewWithout(CPFact fact, Var var) {
+        return new CPFact(new WithoutMap(fact.map, var), false);
+    }
+
+    /**
+     * @return an unmodifiable view of given fact which maps each of
+     * given parameters to the value of the corresponding argument
+     * in the fact, e.g., the fact flowing along a call edge.
+     */
+    public static CPFact viewBinding(CPFact fact, List<Var> args, List<Var> params) {
+        return new CPFact(new BindingMap(fact, args, params), false);
+    }
+
+    /**
+     * @return an unmodifiable fact which only maps given variable to given value.
+     */
+    public static CPFact viewOf(Var var, Value value) {
+        return value.isUndef() ? EMPTY :
+                new CPFact(Collections.singletonMap(var, value), false);
+    }
+
     /**
      * @return the value of given variable in this fact,
      * or UNDEF the variable is absent in this fact.
@@ -73,4 +122,120 @@ public class CPFact extends MapFact<Var, Value> {
     public CPFact copy() {
         return new CPFact(this.map);
     }
+
+    /**
+     * Map view which excludes one key from the underlying map.
+     */
+    private static class WithoutMap extends AbstractMap<Var, Value> {
+
+        private final Map<Var, Value> map;
+
+        private final Var removed;
+
+        private WithoutMap(Map<Var, Value> map, Var removed) {
+            this.map = map;
+            this.removed = removed;
+        }
+
+        @Override
+        public Value get(Object key) {
+            return removed.equals(key) ? null : map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return !removed.equals(key) && map.containsKey(key);
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super Var, ? super Value> action) {
+            map.forEach((var, value) -> {
+                if (!removed.equals(var)) {
+                    action.accept(var, value);
+                }
+            });
+        }
+
+        @Override
+        public Set<Entry<Var, Value>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Var, Value>> iterator() {
+                    return map.entrySet()
+                            .stream()
+                            .filter(e -> !removed.equals(e.getKey()))
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return map.containsKey(removed) ? map.size() - 1 : map.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Map view which maps parameters to the values of the corresponding
+     * arguments in a fact. The parameters whose values are UNDEF are absent.
+     */
+    private static class BindingMap extends AbstractMap<Var, Value> {
+
+        private final CPFact fact;
+
+        private final List<Var> args;
+
+        private final List<Var> params;
+
+        private BindingMap(CPFact fact, List<Var> args, List<Var> params) {
+            this.fact = fact;
+            this.args = args;
+            this.params = params;
+        }
+
+        @Override
+        public Value get(Object key) {
+            int i = params.indexOf(key);
+            if (i == -1) {
+                return null;
+            }
+            Value value = fact.get(args.get(i));
+            return value.isUndef() ? null : value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super Var, ? super Value> action) {
+            for (int i = 0; i < args.size(); ++i) {
+                Value value = fact.get(args.get(i));
+                if (!value.isUndef()) {
+                    action.accept(params.get(i), value);
+                }
+            }
+        }
+
+        @Override
+        public Set<Entry<Var, Value>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Var, Value>> iterator() {
+                    return IntStream.range(0, args.size())
+                            .filter(i -> !fact.get(args.get(i)).isUndef())
+                            .mapToObj(i -> Map.entry(params.get(i), fact.get(args.get(i))))
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return (int) IntStream.range(0, args.size())
+                            .filter(i -> !fact.get(args.get(i)).isUndef())
+                            .count();
+                }
+            };
+        }
+    }
 }
@@ -24,9 +24,12 @@ package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.analysis.AbstractDataflowAnalysis;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.exp.*;
+import pascal.taie.ir.stmt.If;
 import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
 import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
 
@@ -104,6 +107,33 @@ public class ConstantPropagation extends
         return !out.equals(outCopy);
     }
 
+    /**
+     * @return false if given edge is an out edge of {@link If} or
+     * {@link SwitchStmt} which cannot be taken under the IN fact
+     * of the statement, otherwise true.
+     */
+    public static boolean isFeasibleEdge(Edge<Stmt> edge, CPFact in) {
+        Stmt source = edge.getSource();
+        if (source instanceof If ifStmt) {
+            Value cond = evaluate(ifStmt.getCondition(), in);
+            if (cond.isConstant()) {
+                boolean taken = cond.getConstant() > 0;
+                return edge.getKind() == Edge.Kind.IF_TRUE ? taken : !taken;
+            }
+        } else if (source instanceof SwitchStmt switchStmt) {
+            Value var = evaluate(switchStmt.getVar(), in);
+            if (var.isConstant()) {
+                int value = var.getConstant();
+                if (edge.isSwitchCase()) {
+                    return edge.getCaseValue() == value;
+                } else if (edge.getKind() == Edge.Kind.SWITCH_DEFAULT) {
+                    return !switchStmt.getCaseValues().contains(value);
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * @return true if the given variable can hold integer value, otherwise false.
      */
@@ -37,12 +37,32 @@ public class DataflowResult<Node, Fact> implements NodeResult<Node, Fact> {
 
     private final Map<Node, Fact> outFacts = new LinkedHashMap<>();
 
+    /**
+     * The fact of the nodes which have not been associated with any fact,
+     * or null if such nodes have no facts.
+     */
+    private final Fact initialFact;
+
+    public DataflowResult() {
+        this(null);
+    }
+
+    /**
+     * Creates a result in which the nodes that have not been associated
+     * with any fact share given initial fact, so that the facts only need
+     * to be allocated for the nodes whose facts are written. The initial
+     * fact must not be modified by the clients of this result.
+     */
+    public DataflowResult(Fact initialFact) {
+        this.initialFact = initialFact;
+    }
+
     /**
      * @return the flowing-in fact of given node.
      */
     @Override
     public Fact getInFact(Node node) {
-        return inFacts.get(node);
+        return inFacts.getOrDefault(node, initialFact);
     }
 
     /**
@@ -57,7 +77,7 @@ public class DataflowResult<Node, Fact> implements NodeResult<Node, Fact> {
      */
     @Override
     public Fact getOutFact(Node node) {
-        return outFacts.get(node);
+        return outFacts.getOrDefault(node, initialFact);
     }
 
     /**
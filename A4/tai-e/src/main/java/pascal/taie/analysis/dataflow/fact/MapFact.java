@@ -51,7 +51,19 @@ public class MapFact<K, V> {
      * @param map the map whose mappings are to be placed in this map.
      */
     public MapFact(Map<K, V> map) {
-        this.map = Maps.newHybridMap(map);
+        this(map, true);
+    }
+
+    /**
+     * Constructs a new MapFact with specified Map.
+     *
+     * @param map  the map holding the mappings of this MapFact.
+     * @param copy whether to copy the map. If false, this MapFact is
+     *             backed by the map, e.g., an unmodifiable map can be
+     *             given to construct an unmodifiable MapFact.
+     */
+    protected MapFact(Map<K, V> map, boolean copy) {
+        this.map = copy ? Maps.newHybridMap(map) : map;
     }
 
     /**
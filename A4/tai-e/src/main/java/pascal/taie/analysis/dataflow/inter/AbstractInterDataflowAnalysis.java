@@ -53,6 +53,14 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
         super(config);
     }
 
+    /**
+     * @return the ICFG on which this analysis runs. The concrete analysis
+     * can overwrite this method to provide its own ICFG.
+     */
+    protected ICFG<Method, Node> buildICFG() {
+        return World.get().getResult(ICFGBuilder.ID);
+    }
+
     /**
      * If the concrete analysis needs to perform some initialization before
      * the solver starts, then it can overwrite this method.
@@ -119,9 +127,10 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
 
     @Override
     public Object analyze() {
-        icfg = World.get().getResult(ICFGBuilder.ID);
+        icfg = buildICFG();
         initialize();
-        solver = new InterSolver<>(this, icfg);
+        solver = new InterSolver<>(this, icfg,
+                getOptions().getBooleanOrDefault("parallel", false));
         DataflowResult<Node, Fact> result = solver.solve();
         finish();
         return result;
@@ -0,0 +1,396 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Linear constant propagation for int values as an {@link IDEProblem}.
+ * <p>
+ * The facts are int variables, and the edge functions are either constant
+ * functions or linear functions {@code λx.a*x+b}, which are closed under
+ * composition. An assignment {@code x = y op z} is modeled precisely if
+ * one operand is a temporary constant and op is +, - or *, or if both
+ * operands are temporary constants; otherwise x is NAC, as the value of
+ * x cannot be expressed as a function of a single fact.
+ */
+class CPIDEProblem implements IDEProblem<Stmt, Var, Value> {
+
+    /**
+     * The zero fact, which does not correspond to any variable.
+     */
+    private static final Var ZERO = new Var(null, "<zero>", null, -1);
+
+    private static final EdgeFunction<Value> ALL_TOP =
+            new ConstantFunction(Value.getUndef());
+
+    private static final EdgeFunction<Value> ALL_NAC =
+            new ConstantFunction(Value.getNAC());
+
+    private static final EdgeFunction<Value> IDENTITY = new LinearFunction(1, 0);
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    /**
+     * Cache of the assignment of each statement, null if the statement
+     * does not assign an int variable.
+     */
+    private final Map<Stmt, Assignment> assignments = Maps.newMap();
+
+    CPIDEProblem(ICFG<JMethod, Stmt> icfg) {
+        this.icfg = icfg;
+    }
+
+    @Override
+    public Var zeroValue() {
+        return ZERO;
+    }
+
+    @Override
+    public Map<Var, Value> initialSeeds(Stmt entry) {
+        Map<Var, Value> seeds = Maps.newMap();
+        seeds.put(ZERO, Value.getNAC());
+        // init the params to NAC for safety
+        icfg.getContainingMethodOf(entry).getIR().getParams().forEach(p -> {
+            if (ConstantPropagation.canHoldInt(p)) {
+                seeds.put(p, Value.getNAC());
+            }
+        });
+        return seeds;
+    }
+
+    @Override
+    public Set<Var> normalFlow(NormalEdge<Stmt> edge, Var source) {
+        Assignment assign = getAssignment(edge.getSource());
+        if (assign == null) {
+            return Set.of(source);
+        }
+        Set<Var> targets = Sets.newHybridSet();
+        if (!source.equals(assign.def())) {
+            targets.add(source);
+        }
+        if (source.equals(assign.source())) {
+            targets.add(assign.def());
+        }
+        return targets;
+    }
+
+    @Override
+    public Set<Var> callToReturnFlow(CallToReturnEdge<Stmt> edge, Var source) {
+        // the value of the defined variable comes from the return edges
+        return source.equals(getIntDef(edge.getSource())) ?
+                Set.of() : Set.of(source);
+    }
+
+    @Override
+    public Set<Var> callFlow(CallEdge<Stmt> edge, Var source) {
+        if (source == ZERO) {
+            return Set.of(ZERO);
+        }
+        Set<Var> targets = Sets.newHybridSet();
+        List<Var> args = ((Invoke) edge.getSource()).getInvokeExp().getArgs();
+        List<Var> params = edge.getCallee().getIR().getParams();
+        for (int i = 0; i < args.size(); ++i) {
+            if (args.get(i).equals(source) &&
+                    ConstantPropagation.canHoldInt(params.get(i))) {
+                targets.add(params.get(i));
+            }
+        }
+        return targets;
+    }
+
+    @Override
+    public Set<Var> returnFlow(ReturnEdge<Stmt> edge, Var source) {
+        if (source == ZERO) {
+            return Set.of(ZERO);
+        }
+        Var def = getIntDef(edge.getCallSite());
+        return def != null && edge.getReturnVars().contains(source) ?
+                Set.of(def) : Set.of();
+    }
+
+    @Override
+    public EdgeFunction<Value> normalEdgeFunction(
+            NormalEdge<Stmt> edge, Var source, Var target) {
+        Assignment assign = getAssignment(edge.getSource());
+        return assign != null && target.equals(assign.def()) ?
+                assign.function() : IDENTITY;
+    }
+
+    @Override
+    public EdgeFunction<Value> callToReturnEdgeFunction(
+            CallToReturnEdge<Stmt> edge, Var source, Var target) {
+        return IDENTITY;
+    }
+
+    @Override
+    public EdgeFunction<Value> callEdgeFunction(
+            CallEdge<Stmt> edge, Var source, Var target) {
+        return IDENTITY;
+    }
+
+    @Override
+    public EdgeFunction<Value> returnEdgeFunction(
+            ReturnEdge<Stmt> edge, Var source, Var target) {
+        return IDENTITY;
+    }
+
+    @Override
+    public EdgeFunction<Value> identity() {
+        return IDENTITY;
+    }
+
+    @Override
+    public EdgeFunction<Value> allTop() {
+        return ALL_TOP;
+    }
+
+    @Override
+    public Value topValue() {
+        return Value.getUndef();
+    }
+
+    @Override
+    public Value meetValue(Value v1, Value v2) {
+        return meet(v1, v2);
+    }
+
+    /**
+     * Converts the values computed by {@link IDESolver} to
+     * the data-flow result of {@link InterConstantPropagation}.
+     */
+    DataflowResult<Stmt, CPFact> collectResult(Map<Stmt, Map<Var, Value>> values) {
+        DataflowResult<Stmt, CPFact> result = new DataflowResult<>();
+        for (Stmt node : icfg) {
+            CPFact in = new CPFact();
+            values.getOrDefault(node, Map.of()).forEach(in::update);
+            result.setInFact(node, in);
+        }
+        for (Stmt node : icfg) {
+            CPFact in = result.getInFact(node);
+            CPFact out = new CPFact();
+            boolean hasSucc = false;
+            for (ICFGEdge<Stmt> edge : icfg.getOutEdgesOf(node)) {
+                if (edge instanceof NormalEdge<Stmt> normalEdge) {
+                    hasSucc = true;
+                    transfer(in, out, d -> normalFlow(normalEdge, d),
+                            (d, t) -> normalEdgeFunction(normalEdge, d, t));
+                } else if (edge instanceof CallToReturnEdge<Stmt> c2rEdge) {
+                    hasSucc = true;
+                    transfer(in, out, d -> callToReturnFlow(c2rEdge, d),
+                            (d, t) -> IDENTITY);
+                }
+            }
+            result.setOutFact(node, hasSucc ? out : in.copy());
+        }
+        return result;
+    }
+
+    private void transfer(CPFact in, CPFact out,
+                          Function<Var, Set<Var>> flow,
+                          BiFunction<Var, Var, EdgeFunction<Value>> function) {
+        Map<Var, Value> sources = Maps.newMap();
+        sources.put(ZERO, Value.getNAC());
+        in.forEach(sources::put);
+        sources.forEach((d, value) -> flow.apply(d).forEach(t -> {
+            if (t != ZERO) {
+                out.update(t, meetValue(out.get(t),
+                        function.apply(d, t).computeTarget(value)));
+            }
+        }));
+    }
+
+    /**
+     * Meets two values in the standard constant lattice. The tabulation
+     * relies on the meet being monotone to reach its fixed point.
+     */
+    private static Value meet(Value v1, Value v2) {
+        if (v1.isUndef()) {
+            return v2;
+        } else if (v2.isUndef()) {
+            return v1;
+        } else if (v1.equals(v2)) {
+            return v1;
+        } else {
+            return Value.getNAC();
+        }
+    }
+
+    private static Var getIntDef(Stmt stmt) {
+        return stmt.getDef().orElse(null) instanceof Var def &&
+                ConstantPropagation.canHoldInt(def) ? def : null;
+    }
+
+    private Assignment getAssignment(Stmt stmt) {
+        if (!assignments.containsKey(stmt)) {
+            assignments.put(stmt, computeAssignment(stmt));
+        }
+        return assignments.get(stmt);
+    }
+
+    private static Assignment computeAssignment(Stmt stmt) {
+        Var def = getIntDef(stmt);
+        if (def == null || !(stmt instanceof DefinitionStmt<?, ?> defStmt)) {
+            return null;
+        }
+        RValue rvalue = defStmt.getRValue();
+        if (rvalue instanceof IntLiteral literal) {
+            return new Assignment(def, ZERO,
+                    new ConstantFunction(Value.makeConstant(literal.getValue())));
+        } else if (rvalue instanceof Var var) {
+            Integer c = getTempConst(var);
+            if (c != null) {
+                return new Assignment(def, ZERO,
+                        new ConstantFunction(Value.makeConstant(c)));
+            } else if (ConstantPropagation.canHoldInt(var)) {
+                return new Assignment(def, var, IDENTITY);
+            }
+        } else if (rvalue instanceof BinaryExp binary) {
+            Var y = binary.getOperand1();
+            Var z = binary.getOperand2();
+            Integer yc = getTempConst(y);
+            Integer zc = getTempConst(z);
+            if (yc != null && zc != null) {
+                CPFact operands = new CPFact();
+                operands.update(y, Value.makeConstant(yc));
+                operands.update(z, Value.makeConstant(zc));
+                return new Assignment(def, ZERO, new ConstantFunction(
+                        ConstantPropagation.evaluate(binary, operands)));
+            } else if (binary instanceof ArithmeticExp arith &&
+                    (yc != null || zc != null)) {
+                Var x = yc != null ? z : y;
+                int c = yc != null ? yc : zc;
+                LinearFunction f = switch (arith.getOperator()) {
+                    case ADD -> new LinearFunction(1, c);
+                    case SUB -> yc != null ?
+                            new LinearFunction(-1, c) : new LinearFunction(1, -c);
+                    case MUL -> new LinearFunction(c, 0);
+                    default -> null;
+                };
+                if (f != null && ConstantPropagation.canHoldInt(x)) {
+                    return new Assignment(def, x, f);
+                }
+            }
+        }
+        return new Assignment(def, ZERO, ALL_NAC);
+    }
+
+    /**
+     * @return the int value held by given temporary constant variable,
+     * or null if the variable does not hold an int constant.
+     */
+    private static Integer getTempConst(Var var) {
+        return var.isTempConst() &&
+                var.getTempConstValue() instanceof IntLiteral literal ?
+                literal.getValue() : null;
+    }
+
+    /**
+     * Assignment {@code def = f(source)} of an int variable, where
+     * source is the zero fact if the assigned value does not depend
+     * on any variable.
+     */
+    private record Assignment(Var def, Var source, EdgeFunction<Value> function) {
+    }
+
+    /**
+     * Edge function {@code λx.value}.
+     */
+    private record ConstantFunction(Value value) implements EdgeFunction<Value> {
+
+        @Override
+        public Value computeTarget(Value source) {
+            return value;
+        }
+
+        @Override
+        public EdgeFunction<Value> andThen(EdgeFunction<Value> next) {
+            return next instanceof LinearFunction ?
+                    new ConstantFunction(next.computeTarget(value)) : next;
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (value.isUndef()) {
+                return other;
+            } else if (other instanceof ConstantFunction c) {
+                return new ConstantFunction(meet(value, c.value()));
+            } else {
+                return ALL_NAC;
+            }
+        }
+    }
+
+    /**
+     * Edge function {@code λx.a*x+b}, which maps UNDEF and NAC to themselves.
+     */
+    private record LinearFunction(int a, int b) implements EdgeFunction<Value> {
+
+        @Override
+        public Value computeTarget(Value source) {
+            return source.isConstant() ?
+                    Value.makeConstant(a * source.getConstant() + b) : source;
+        }
+
+        @Override
+        public EdgeFunction<Value> andThen(EdgeFunction<Value> next) {
+            return next instanceof LinearFunction g ?
+                    new LinearFunction(g.a() * a, g.a() * b + g.b()) : next;
+        }
+
+        @Override
+        public EdgeFunction<Value> meetWith(EdgeFunction<Value> other) {
+            if (equals(other) || ALL_TOP.equals(other)) {
+                return this;
+            } else {
+                return ALL_NAC;
+            }
+        }
+    }
+}
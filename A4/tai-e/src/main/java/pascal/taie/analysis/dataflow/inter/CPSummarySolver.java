@@ -0,0 +1,362 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Summary-based (functional approach) solver for
+ * {@link InterConstantPropagation}.
+ * <p>
+ * Each method is analyzed separately for every distinct tuple of abstract
+ * values of its arguments (a context), and the value it returns in that
+ * context is memoized as its summary. A call site whose argument values
+ * have been seen before reuses the summary instead of propagating facts
+ * through the body of the callee again. A context is re-analyzed only
+ * when the summary of one of its callees changes.
+ * <p>
+ * While the facts of a context are being computed, the argument values
+ * at its call sites may not be stable yet, thus call sites only look up
+ * the summaries of existing contexts. The contexts of the callees are
+ * created from the argument values of the fixed point, so that transient
+ * argument values do not use up the contexts of a method.
+ * <p>
+ * The facts of a method in the final result are the meet of its facts
+ * in all contexts which are reachable from the entry methods.
+ */
+class CPSummarySolver {
+
+    /**
+     * Maximum number of contexts per method. Once a method reaches this
+     * limit, all its further calls share the context whose arguments are
+     * all NAC, so that the analysis terminates on (e.g.) recursive methods
+     * whose arguments never converge.
+     */
+    private static final int MAX_CONTEXTS = 16;
+
+    private final InterConstantPropagation analysis;
+
+    private final ConstantPropagation cp;
+
+    private final ICFG<JMethod, Stmt> icfg;
+
+    /**
+     * Map from method to its contexts.
+     */
+    private final MultiMap<JMethod, Context> contexts = Maps.newMultiMap();
+
+    /**
+     * Map from context to the return value of the method in the context.
+     */
+    private final Map<Context, Value> summaries = Maps.newMap();
+
+    /**
+     * Map from context to the latest facts of the method in the context.
+     */
+    private final Map<Context, DataflowResult<Stmt, CPFact>> results = Maps.newMap();
+
+    /**
+     * Map from context to the callee contexts it used in its latest analysis.
+     */
+    private final MultiMap<Context, Context> callees = Maps.newMultiMap();
+
+    /**
+     * Map from context to the contexts which have used its summary.
+     */
+    private final MultiMap<Context, Context> callers = Maps.newMultiMap();
+
+    private final Queue<Context> workList = new SetQueue<>();
+
+    CPSummarySolver(InterConstantPropagation analysis, ConstantPropagation cp,
+                    ICFG<JMethod, Stmt> icfg) {
+        this.analysis = analysis;
+        this.cp = cp;
+        this.icfg = icfg;
+    }
+
+    DataflowResult<Stmt, CPFact> solve() {
+        List<Context> entries = icfg.entryMethods()
+                .map(m -> getContext(m, null))
+                .toList();
+        while (!workList.isEmpty()) {
+            Context context = workList.poll();
+            Value summary = analyzeContext(context);
+            if (!summary.equals(summaries.put(context, summary))) {
+                // the summary is new or changed, thus the contexts
+                // which use it must be analyzed again
+                workList.addAll(callers.get(context));
+            }
+        }
+        return collectResult(entries);
+    }
+
+    /**
+     * @param args abstract values of the arguments, or null for
+     *             the boundary context of an entry method.
+     * @return the context of given method for given arguments. If the
+     * context is new, it is added to the work-list.
+     */
+    private Context getContext(JMethod method, List<Value> args) {
+        Context context = new Context(method, args);
+        Set<Context> methodContexts = contexts.get(method);
+        if (!methodContexts.contains(context)) {
+            if (args != null && methodContexts.size() >= MAX_CONTEXTS) {
+                context = new Context(method,
+                        Collections.nCopies(args.size(), Value.getNAC()));
+            }
+            if (contexts.put(method, context)) {
+                workList.add(context);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Analyzes the method of given context from scratch.
+     *
+     * @return the return value of the method in given context.
+     */
+    private Value analyzeContext(Context context) {
+        JMethod method = context.method();
+        IR ir = method.getIR();
+        // obtain the entry first, as a lazy ICFG builds the CFG of
+        // the method the first time its entry is queried
+        Stmt entry = icfg.getEntryOf(method);
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        DataflowResult<Stmt, CPFact> result = new DataflowResult<>();
+        for (Stmt node : cfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
+        result.setOutFact(entry, newBoundaryFact(context, ir, entry));
+        callees.removeAll(context);
+        // callee contexts whose summaries have been applied
+        Set<Context> applied = Sets.newSet();
+        Queue<Stmt> nodes = new SetQueue<>();
+        cfg.forEach(node -> {
+            if (node != entry) {
+                nodes.add(node);
+            }
+        });
+        while (!nodes.isEmpty()) {
+            Stmt node = nodes.poll();
+            CPFact in = result.getInFact(node);
+            for (ICFGEdge<Stmt> edge : icfg.getInEdgesOf(node)) {
+                if (edge instanceof NormalEdge ||
+                        edge instanceof CallToReturnEdge) {
+                    Stmt source = edge.getSource();
+                    analysis.meetInto(analysis.transferEdge(
+                            edge, result.getOutFact(source)), in);
+                    if (edge instanceof CallToReturnEdge) {
+                        analysis.meetInto(applySummaries(context, source,
+                                result.getInFact(source), applied), in);
+                    }
+                }
+            }
+            // the value returned to a call site also depends on its in fact,
+            // thus the return site is revisited whenever the call site is
+            if (analysis.transferNode(node, in, result.getOutFact(node)) ||
+                    node instanceof Invoke) {
+                icfg.getOutEdgesOf(node).forEach(edge -> {
+                    if (edge instanceof NormalEdge ||
+                            edge instanceof CallToReturnEdge) {
+                        nodes.add(edge.getTarget());
+                    }
+                });
+            }
+        }
+        results.put(context, result);
+        addCalleeContexts(context, cfg, result, applied);
+        CPFact exitIn = result.getInFact(icfg.getExitOf(method));
+        Value summary = Value.getUndef();
+        for (Var ret : ir.getReturnVars()) {
+            summary = cp.meetValue(summary, exitIn.get(ret));
+        }
+        return summary;
+    }
+
+    private CPFact newBoundaryFact(Context context, IR ir, Stmt entry) {
+        if (context.args() == null) {
+            return analysis.newBoundaryFact(entry);
+        }
+        CPFact fact = analysis.newInitialFact();
+        List<Var> params = ir.getParams();
+        for (int i = 0; i < params.size(); ++i) {
+            if (ConstantPropagation.canHoldInt(params.get(i))) {
+                fact.update(params.get(i), context.args().get(i));
+            }
+        }
+        return fact;
+    }
+
+    /**
+     * @return the existing context of given method for given arguments,
+     * or null if there is no such context.
+     */
+    private Context lookupContext(JMethod method, List<Value> args) {
+        Context context = new Context(method, args);
+        Set<Context> methodContexts = contexts.get(method);
+        if (!methodContexts.contains(context) &&
+                methodContexts.size() >= MAX_CONTEXTS) {
+            context = new Context(method,
+                    Collections.nCopies(args.size(), Value.getNAC()));
+        }
+        return methodContexts.contains(context) ? context : null;
+    }
+
+    /**
+     * Looks up the summaries of the callees of given call site
+     * for the argument values in given in fact. The callee contexts
+     * which do not exist yet are skipped.
+     *
+     * @param applied the set to which the found callee contexts are added
+     * @return the fact which holds the value returned to the call site.
+     */
+    private CPFact applySummaries(Context context, Stmt callSite, CPFact in,
+                                  Set<Context> applied) {
+        List<Value> args = getArgs(callSite, in);
+        Value value = Value.getUndef();
+        for (JMethod callee : icfg.getCalleesOf(callSite)) {
+            Context calleeContext = lookupContext(callee, args);
+            if (calleeContext != null) {
+                callers.put(calleeContext, context);
+                applied.add(calleeContext);
+                value = cp.meetValue(value,
+                        summaries.getOrDefault(calleeContext, Value.getUndef()));
+            }
+        }
+        CPFact fact = analysis.newInitialFact();
+        if (callSite.getDef().orElse(null) instanceof Var def &&
+                ConstantPropagation.canHoldInt(def)) {
+            fact.update(def, value);
+        }
+        return fact;
+    }
+
+    /**
+     * Creates (or finds) the callee contexts of the call sites in the
+     * method of given context from the argument values in given result,
+     * which has reached the fixed point. If the summary of such a context
+     * is available but has not been applied, given context is added to
+     * the work-list to be analyzed again.
+     */
+    private void addCalleeContexts(Context context, CFG<Stmt> cfg,
+                                   DataflowResult<Stmt, CPFact> result,
+                                   Set<Context> applied) {
+        boolean stale = false;
+        for (Stmt node : cfg) {
+            if (node instanceof Invoke) {
+                List<Value> args = getArgs(node, result.getInFact(node));
+                for (JMethod callee : icfg.getCalleesOf(node)) {
+                    Context calleeContext = getContext(callee, args);
+                    callees.put(context, calleeContext);
+                    callers.put(calleeContext, context);
+                    if (!applied.contains(calleeContext) &&
+                            summaries.containsKey(calleeContext)) {
+                        stale = true;
+                    }
+                }
+            }
+        }
+        if (stale) {
+            workList.add(context);
+        }
+    }
+
+    /**
+     * @return abstract values of the arguments of given call site
+     * in given fact.
+     */
+    private static List<Value> getArgs(Stmt callSite, CPFact fact) {
+        return ((Invoke) callSite).getInvokeExp()
+                .getArgs()
+                .stream()
+                .map(fact::get)
+                .toList();
+    }
+
+    /**
+     * Meets the facts of the contexts which are reachable from given
+     * entry contexts into a result over the whole ICFG.
+     */
+    private DataflowResult<Stmt, CPFact> collectResult(List<Context> entries) {
+        DataflowResult<Stmt, CPFact> result = new DataflowResult<>();
+        for (Stmt node : icfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
+        Set<Context> reached = Sets.newSet();
+        reached.addAll(entries);
+        Deque<Context> stack = new ArrayDeque<>(entries);
+        while (!stack.isEmpty()) {
+            Context context = stack.pop();
+            DataflowResult<Stmt, CPFact> contextResult = results.get(context);
+            CFG<Stmt> cfg = context.method().getIR().getResult(CFGBuilder.ID);
+            for (Stmt node : cfg) {
+                analysis.meetInto(contextResult.getInFact(node),
+                        result.getInFact(node));
+                analysis.meetInto(contextResult.getOutFact(node),
+                        result.getOutFact(node));
+            }
+            for (Context callee : callees.get(context)) {
+                if (reached.add(callee)) {
+                    stack.push(callee);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A method together with the abstract values of its arguments.
+     * The arguments are null for the boundary context of an entry method.
+     */
+    private record Context(JMethod method, List<Value> args) {
+    }
+}
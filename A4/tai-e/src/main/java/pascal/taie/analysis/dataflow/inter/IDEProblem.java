@@ -0,0 +1,100 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Template interface for defining inter-procedural distributive environment
+ * (IDE) problems, which are solved by {@link IDESolver}.
+ * <p>
+ * The flow functions map a fact holding at the source node of an ICFG edge
+ * to the facts holding at the target node, and the edge functions describe
+ * how the value of each target fact is computed from the value of its
+ * source fact. Every flow function must map {@link #zeroValue()} to itself.
+ *
+ * @param <Node> type of ICFG nodes
+ * @param <D>    type of data-flow facts
+ * @param <V>    type of values of the facts
+ */
+public interface IDEProblem<Node, D, V> {
+
+    /**
+     * @return the special zero fact which holds at every reachable node.
+     */
+    D zeroValue();
+
+    /**
+     * @return the facts which hold at given entry node of an entry method,
+     * together with their initial values. The result must contain
+     * {@link #zeroValue()}.
+     */
+    Map<D, V> initialSeeds(Node entry);
+
+    // ---------- flow functions for specific ICFG edges ----------
+    Set<D> normalFlow(NormalEdge<Node> edge, D source);
+
+    Set<D> callToReturnFlow(CallToReturnEdge<Node> edge, D source);
+
+    Set<D> callFlow(CallEdge<Node> edge, D source);
+
+    Set<D> returnFlow(ReturnEdge<Node> edge, D source);
+    // ------------------------------------------------------------
+
+    // ---------- edge functions for specific ICFG edges ----------
+    EdgeFunction<V> normalEdgeFunction(NormalEdge<Node> edge, D source, D target);
+
+    EdgeFunction<V> callToReturnEdgeFunction(CallToReturnEdge<Node> edge, D source, D target);
+
+    EdgeFunction<V> callEdgeFunction(CallEdge<Node> edge, D source, D target);
+
+    EdgeFunction<V> returnEdgeFunction(ReturnEdge<Node> edge, D source, D target);
+    // ------------------------------------------------------------
+
+    /**
+     * @return the identity edge function.
+     */
+    EdgeFunction<V> identity();
+
+    /**
+     * @return the edge function which maps every value to
+     * {@link #topValue()}, i.e., the initial jump function.
+     */
+    EdgeFunction<V> allTop();
+
+    /**
+     * @return the top value of the value lattice.
+     */
+    V topValue();
+
+    /**
+     * Meets two values.
+     */
+    V meetValue(V v1, V v2);
+}
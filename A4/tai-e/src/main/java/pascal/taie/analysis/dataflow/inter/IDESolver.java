@@ -0,0 +1,336 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.NormalEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.SetQueue;
+
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Tabulation solver for {@link IDEProblem}s, following
+ * "Precise interprocedural dataflow analysis with applications to
+ * constant propagation" (Sagiv, Reps and Horwitz, TCS'96).
+ * <p>
+ * Phase I computes the jump functions of the path edges which are reachable
+ * from the entry methods in the exploded super-graph, together with the
+ * summary functions of call sites, by composing edge functions on demand.
+ * Phase II then computes the values of the facts at every node from the
+ * jump functions. Only the facts reachable in the exploded super-graph are
+ * ever represented, instead of a whole fact per ICFG node.
+ *
+ * @param <Method> type of ICFG methods
+ * @param <Node>   type of ICFG nodes
+ * @param <D>      type of data-flow facts
+ * @param <V>      type of values of the facts
+ */
+public class IDESolver<Method, Node, D, V> {
+
+    private final IDEProblem<Node, D, V> problem;
+
+    private final ICFG<Method, Node> icfg;
+
+    /**
+     * Jump functions of path edges, indexed by target node,
+     * target fact and source fact (at the entry of the method).
+     */
+    private final Map<Node, Map<D, Map<D, EdgeFunction<V>>>> jumpFunctions = Maps.newMap();
+
+    /**
+     * Map from (entry node, fact) to the (call site, fact) pairs
+     * from which it is reached.
+     */
+    private final MultiMap<NodeFact<Node, D>, NodeFact<Node, D>> incoming = Maps.newMultiMap();
+
+    /**
+     * Map from (entry node, fact) to the facts it reaches at the exit node
+     * of the method, together with the jump functions.
+     */
+    private final Map<NodeFact<Node, D>, Map<D, EdgeFunction<V>>> endSummaries = Maps.newMap();
+
+    /**
+     * Map from (call site, fact) to the (return site, fact) pairs reached
+     * through the callees, together with the summary functions.
+     */
+    private final Map<NodeFact<Node, D>, Map<NodeFact<Node, D>, EdgeFunction<V>>> summaries = Maps.newMap();
+
+    private final Queue<PathEdge<Node, D>> workList = new SetQueue<>();
+
+    /**
+     * Values of the facts at each node.
+     */
+    private final Map<Node, Map<D, V>> values = Maps.newMap();
+
+    public IDESolver(IDEProblem<Node, D, V> problem, ICFG<Method, Node> icfg) {
+        this.problem = problem;
+        this.icfg = icfg;
+    }
+
+    /**
+     * @return the values of the facts (except the zero fact) which hold
+     * at the entry of each node.
+     */
+    public Map<Node, Map<D, V>> solve() {
+        computeJumpFunctions();
+        computeValues();
+        D zero = problem.zeroValue();
+        values.values().forEach(facts -> facts.remove(zero));
+        return values;
+    }
+
+    // ---------- Phase I: jump functions ----------
+    private void computeJumpFunctions() {
+        icfg.entryMethods().forEach(method -> {
+            Node entry = icfg.getEntryOf(method);
+            problem.initialSeeds(entry).keySet().forEach(fact ->
+                    propagate(fact, entry, fact, problem.identity()));
+        });
+        while (!workList.isEmpty()) {
+            PathEdge<Node, D> edge = workList.poll();
+            Node node = edge.node();
+            EdgeFunction<V> f = getJumpFunction(edge.source(), node, edge.target());
+            if (icfg.isCallSite(node)) {
+                processCall(edge.source(), node, edge.target(), f);
+            } else if (isExit(node)) {
+                processExit(edge.source(), node, edge.target(), f);
+            } else {
+                processNormal(edge.source(), node, edge.target(), f);
+            }
+        }
+    }
+
+    private void processCall(D d1, Node callSite, D d2, EdgeFunction<V> f) {
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(callSite)) {
+            if (edge instanceof CallEdge<Node> callEdge) {
+                Node calleeEntry = callEdge.getTarget();
+                for (D d3 : problem.callFlow(callEdge, d2)) {
+                    propagate(d3, calleeEntry, d3, problem.identity());
+                    NodeFact<Node, D> entryFact = new NodeFact<>(calleeEntry, d3);
+                    incoming.put(entryFact, new NodeFact<>(callSite, d2));
+                    endSummaries.getOrDefault(entryFact, Map.of()).forEach((d4, fEnd) ->
+                            applyEndSummary(callSite, d2, callEdge, d3,
+                                    icfg.getExitOf(icfg.getContainingMethodOf(calleeEntry)),
+                                    d4, fEnd));
+                }
+            } else if (edge instanceof CallToReturnEdge<Node> c2rEdge) {
+                for (D d3 : problem.callToReturnFlow(c2rEdge, d2)) {
+                    propagate(d1, c2rEdge.getTarget(), d3, f.andThen(
+                            problem.callToReturnEdgeFunction(c2rEdge, d2, d3)));
+                }
+            }
+        }
+        summaries.getOrDefault(new NodeFact<>(callSite, d2), Map.of())
+                .forEach((returnFact, fs) -> propagate(d1,
+                        returnFact.node(), returnFact.fact(), f.andThen(fs)));
+    }
+
+    private void processExit(D d1, Node exit, D d2, EdgeFunction<V> f) {
+        Node entry = icfg.getEntryOf(icfg.getContainingMethodOf(exit));
+        NodeFact<Node, D> entryFact = new NodeFact<>(entry, d1);
+        Map<D, EdgeFunction<V>> ends = endSummaries.computeIfAbsent(
+                entryFact, __ -> Maps.newMap());
+        EdgeFunction<V> old = ends.getOrDefault(d2, problem.allTop());
+        EdgeFunction<V> fEnd = old.meetWith(f);
+        if (fEnd.equals(old)) {
+            return;
+        }
+        ends.put(d2, fEnd);
+        for (NodeFact<Node, D> callFact : incoming.get(entryFact)) {
+            Node callSite = callFact.node();
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(callSite)) {
+                if (edge instanceof CallEdge<Node> callEdge &&
+                        callEdge.getTarget().equals(entry)) {
+                    applyEndSummary(callSite, callFact.fact(), callEdge,
+                            d1, exit, d2, fEnd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Composes the summary functions of a call site from the end summary
+     * (d3 at entry to d4 at exit) of a callee.
+     */
+    private void applyEndSummary(Node callSite, D d2, CallEdge<Node> callEdge,
+                                 D d3, Node exit, D d4, EdgeFunction<V> fEnd) {
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(exit)) {
+            if (edge instanceof ReturnEdge<Node> returnEdge &&
+                    returnEdge.getCallSite().equals(callSite)) {
+                for (D d5 : problem.returnFlow(returnEdge, d4)) {
+                    EdgeFunction<V> fs = problem.callEdgeFunction(callEdge, d2, d3)
+                            .andThen(fEnd)
+                            .andThen(problem.returnEdgeFunction(returnEdge, d4, d5));
+                    addSummary(callSite, d2, returnEdge.getTarget(), d5, fs);
+                }
+            }
+        }
+    }
+
+    private void addSummary(Node callSite, D d2, Node returnSite, D d5,
+                            EdgeFunction<V> fs) {
+        Map<NodeFact<Node, D>, EdgeFunction<V>> callSummaries =
+                summaries.computeIfAbsent(new NodeFact<>(callSite, d2),
+                        __ -> Maps.newMap());
+        NodeFact<Node, D> returnFact = new NodeFact<>(returnSite, d5);
+        EdgeFunction<V> old = callSummaries.getOrDefault(returnFact, problem.allTop());
+        EdgeFunction<V> summary = old.meetWith(fs);
+        if (!summary.equals(old)) {
+            callSummaries.put(returnFact, summary);
+            // apply the new summary to all path edges reaching the call site
+            getJumpFunctions(callSite, d2).forEach((d1, f) ->
+                    propagate(d1, returnSite, d5, f.andThen(summary)));
+        }
+    }
+
+    private void processNormal(D d1, Node node, D d2, EdgeFunction<V> f) {
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+            if (edge instanceof NormalEdge<Node> normalEdge) {
+                for (D d3 : problem.normalFlow(normalEdge, d2)) {
+                    propagate(d1, normalEdge.getTarget(), d3, f.andThen(
+                            problem.normalEdgeFunction(normalEdge, d2, d3)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Meets given function into the jump function of path edge
+     * (d1 at entry) -> (d2 at node), and adds the path edge to
+     * the work-list if its jump function changes.
+     */
+    private void propagate(D d1, Node node, D d2, EdgeFunction<V> f) {
+        Map<D, EdgeFunction<V>> functions = jumpFunctions
+                .computeIfAbsent(node, __ -> Maps.newMap())
+                .computeIfAbsent(d2, __ -> Maps.newMap());
+        EdgeFunction<V> old = functions.getOrDefault(d1, problem.allTop());
+        EdgeFunction<V> newF = old.meetWith(f);
+        if (!newF.equals(old)) {
+            functions.put(d1, newF);
+            workList.add(new PathEdge<>(d1, node, d2));
+        }
+    }
+
+    private EdgeFunction<V> getJumpFunction(D d1, Node node, D d2) {
+        return getJumpFunctions(node, d2).getOrDefault(d1, problem.allTop());
+    }
+
+    /**
+     * @return map from source fact to jump function of the path edges
+     * which reach (node, d2).
+     */
+    private Map<D, EdgeFunction<V>> getJumpFunctions(Node node, D d2) {
+        return jumpFunctions.getOrDefault(node, Map.of())
+                .getOrDefault(d2, Map.of());
+    }
+
+    private boolean isExit(Node node) {
+        return icfg.getExitOf(icfg.getContainingMethodOf(node)).equals(node);
+    }
+
+    // ---------- Phase II: values ----------
+    private void computeValues() {
+        // propagate values to the entry nodes of reachable methods
+        MultiMap<Method, Node> callSites = Maps.newMultiMap();
+        jumpFunctions.keySet().forEach(node -> {
+            if (icfg.isCallSite(node)) {
+                callSites.put(icfg.getContainingMethodOf(node), node);
+            }
+        });
+        Queue<NodeFact<Node, D>> entryFacts = new SetQueue<>();
+        icfg.entryMethods().forEach(method -> {
+            Node entry = icfg.getEntryOf(method);
+            problem.initialSeeds(entry).forEach((fact, value) -> {
+                meetValue(entry, fact, value);
+                entryFacts.add(new NodeFact<>(entry, fact));
+            });
+        });
+        while (!entryFacts.isEmpty()) {
+            NodeFact<Node, D> entryFact = entryFacts.poll();
+            V entryValue = getValue(entryFact.node(), entryFact.fact());
+            Method method = icfg.getContainingMethodOf(entryFact.node());
+            for (Node callSite : callSites.get(method)) {
+                jumpFunctions.get(callSite).forEach((d2, functions) -> {
+                    EdgeFunction<V> f = functions.get(entryFact.fact());
+                    if (f == null) {
+                        return;
+                    }
+                    V callValue = f.computeTarget(entryValue);
+                    for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(callSite)) {
+                        if (edge instanceof CallEdge<Node> callEdge) {
+                            for (D d3 : problem.callFlow(callEdge, d2)) {
+                                V v = problem.callEdgeFunction(callEdge, d2, d3)
+                                        .computeTarget(callValue);
+                                if (meetValue(callEdge.getTarget(), d3, v)) {
+                                    entryFacts.add(new NodeFact<>(callEdge.getTarget(), d3));
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        // compute values at the other nodes from the values at entry nodes
+        jumpFunctions.forEach((node, targets) -> {
+            Node entry = icfg.getEntryOf(icfg.getContainingMethodOf(node));
+            if (!node.equals(entry)) {
+                targets.forEach((d2, functions) -> functions.forEach((d1, f) ->
+                        meetValue(node, d2, f.computeTarget(getValue(entry, d1)))));
+            }
+        });
+    }
+
+    private V getValue(Node node, D fact) {
+        return values.getOrDefault(node, Map.of())
+                .getOrDefault(fact, problem.topValue());
+    }
+
+    /**
+     * Meets given value into the value of the fact at the node.
+     *
+     * @return true if the value of the fact changes, otherwise false.
+     */
+    private boolean meetValue(Node node, D fact, V value) {
+        Map<D, V> facts = values.computeIfAbsent(node, __ -> Maps.newMap());
+        V old = facts.getOrDefault(fact, problem.topValue());
+        V newValue = problem.meetValue(old, value);
+        if (newValue.equals(old)) {
+            return false;
+        }
+        facts.put(fact, newValue);
+        return true;
+    }
+
+    private record PathEdge<Node, D>(D source, Node node, D target) {
+    }
+
+    private record NodeFact<Node, D>(Node node, D fact) {
+    }
+}
@@ -22,45 +22,180 @@
 
 package pascal.taie.analysis.dataflow.inter;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.graph.callgraph.CHABuilder;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.CompactICFG;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGBuilder;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.LazyICFG;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
 
-import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Map;
 
 /**
  * Implementation of interprocedural constant propagation for int values.
+ * <p>
+ * If option "summary" is true, the analysis is solved by
+ * {@link CPSummarySolver}, which memoizes the return value of each
+ * callee per tuple of argument values, instead of {@link InterSolver}.
+ * If option "ide" is true, the analysis is solved as linear constant
+ * propagation ({@link CPIDEProblem}) by {@link IDESolver}.
  */
 public class InterConstantPropagation extends
     AbstractInterDataflowAnalysis<JMethod, Stmt, CPFact> {
 
     public static final String ID = "inter-constprop";
 
+    private static final Logger logger = LogManager.getLogger(InterConstantPropagation.class);
+
     private final ConstantPropagation cp;
 
+    /**
+     * Map from signature of library method to its summary,
+     * i.e., the value it returns in any context.
+     */
+    private Map<String, Value> librarySummaries = Map.of();
+
+    /**
+     * Resolver of callees if option "on-the-fly-cg" is true, otherwise null.
+     */
+    private CHABuilder cha;
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
     }
 
+    @Override
+    public Object analyze() {
+        if (getOptions().getString("lib-summary") != null) {
+            // only InterSolver skips the summarized callees
+            // and applies their summaries to the call results
+            for (String option : List.of("ide", "summary")) {
+                if (getOptions().getBooleanOrDefault(option, false)) {
+                    throw new ConfigException(
+                            "lib-summary cannot be used with " + option);
+                }
+            }
+        }
+        if (getOptions().getBooleanOrDefault("ide", false)) {
+            icfg = buildICFG();
+            CPIDEProblem problem = new CPIDEProblem(icfg);
+            return problem.collectResult(new IDESolver<>(problem, icfg).solve());
+        }
+        if (getOptions().getBooleanOrDefault("summary", false)) {
+            icfg = buildICFG();
+            return new CPSummarySolver(this, cp, icfg).solve();
+        }
+        return super.analyze();
+    }
+
+    @Override
+    protected ICFG<JMethod, Stmt> buildICFG() {
+        ICFG<JMethod, Stmt> graph;
+        if (getOptions().getBooleanOrDefault("on-the-fly-cg", false)) {
+            // the ICFG must grow as the default solver reaches call sites
+            for (String option : List.of("compact-icfg", "parallel", "ide", "summary")) {
+                if (getOptions().getBooleanOrDefault(option, false)) {
+                    throw new ConfigException(
+                            "on-the-fly-cg cannot be used with " + option);
+                }
+            }
+            cha = new CHABuilder();
+            return new LazyICFG(List.of(World.get().getMainMethod()), cha::resolve);
+        } else if (getOptions().getBooleanOrDefault("lazy-icfg", false)) {
+            // the parallel solver traverses the whole ICFG up front and
+            // reads it from multiple threads, while LazyICFG builds its
+            // nodes and edges on demand without synchronization, and
+            // copying the ICFG into a compact one builds it entirely
+            for (String option : List.of("parallel", "compact-icfg")) {
+                if (getOptions().getBooleanOrDefault(option, false)) {
+                    throw new ConfigException(
+                            "lazy-icfg cannot be used with " + option);
+                }
+            }
+            graph = new LazyICFG(World.get().getResult(CallGraphBuilder.ID));
+        } else {
+            graph = super.buildICFG();
+        }
+        if (getOptions().getBooleanOrDefault("compact-icfg", false)) {
+            boolean shared = graph == World.get().getResult(ICFGBuilder.ID);
+            graph = new CompactICFG<>(graph);
+            if (shared) {
+                // replace the built ICFG, so that it can be reclaimed
+                World.get().storeResult(ICFGBuilder.ID, graph);
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    protected void initialize() {
+        String file = getOptions().getString("lib-summary");
+        if (file != null) {
+            librarySummaries = LibrarySummaries.read(file);
+            logger.info("Loaded {} library summaries from {}",
+                    librarySummaries.size(), file);
+        }
+    }
+
+    @Override
+    protected void finish() {
+        if (icfg instanceof LazyICFG lazyICFG) {
+            logger.info("Lazy ICFG: {}", lazyICFG.getStatistics());
+        }
+        if (cha != null) {
+            cha.logStatistics();
+        }
+    }
+
     @Override
     public boolean isForward() {
         return cp.isForward();
     }
 
+    @Override
+    public boolean needTransferEdge(ICFGEdge<Stmt> edge) {
+        // the summarized callees are not analyzed,
+        // their return values are given by transferCallToReturnEdge()
+        if (edge instanceof CallEdge<Stmt> callEdge) {
+            return !librarySummaries.containsKey(callEdge.getCallee().getSignature());
+        } else if (edge instanceof ReturnEdge<Stmt>) {
+            return !librarySummaries.containsKey(
+                    icfg.getContainingMethodOf(edge.getSource()).getSignature());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isFeasible(ICFGEdge<Stmt> edge, CPFact out) {
+        // the on-the-fly call graph only grows at the call sites in the
+        // branches which may be taken, so that dead call sites are never
+        // expanded. An If or a SwitchStmt does not change the fact,
+        // thus its OUT fact is also its IN fact.
+        return cha == null || !(edge instanceof NormalEdge<Stmt> normalEdge) ||
+                ConstantPropagation.isFeasibleEdge(normalEdge.getCFGEdge(), out);
+    }
+
     @Override
     public CPFact newBoundaryFact(Stmt boundary) {
         IR ir = icfg.getContainingMethodOf(boundary).getIR();
@@ -72,6 +207,11 @@ public class InterConstantPropagation extends
         return cp.newInitialFact();
     }
 
+    @Override
+    public CPFact getSharedInitialFact() {
+        return CPFact.empty();
+    }
+
     @Override
     public void meetInto(CPFact fact, CPFact target) {
         cp.meetInto(fact, target);
@@ -79,16 +219,14 @@ public class InterConstantPropagation extends
 
     @Override
     protected boolean transferCallNode(Stmt stmt, CPFact in, CPFact out) {
-        CPFact outCopy = out.copy();
-        out.copyFrom(in);
-
-        // kill the defined var
-        stmt.getDef().ifPresent(def -> {
-            if (def instanceof Var) {
-                out.remove((Var) def);
-            }
-        });
-        return !out.equals(outCopy);
+        if (icfg instanceof LazyICFG lazyICFG) {
+            // grows the call graph on the fly, if enabled
+            lazyICFG.expand(stmt);
+        }
+        // kill the defined var, the out fact never holds it
+        return stmt.getDef().orElse(null) instanceof Var def ?
+                out.copyFrom(CPFact.viewWithout(in, def)) :
+                out.copyFrom(in);
     }
 
     @Override
@@ -103,56 +241,53 @@ public class InterConstantPropagation extends
 
     @Override
     protected CPFact transferCallToReturnEdge(CallToReturnEdge<Stmt> edge, CPFact out) {
-        CPFact c2rOut = out.copy();
-        edge.getSource().getDef().ifPresent(def -> {
-            if (def instanceof Var && ConstantPropagation.canHoldInt((Var) def)) {
-                c2rOut.remove((Var) def);
+        // the defined var has been killed by transferCallNode(),
+        // unless it receives the return value of summarized callees
+        Stmt callSite = edge.getSource();
+        if (!librarySummaries.isEmpty() &&
+                callSite.getDef().orElse(null) instanceof Var def &&
+                ConstantPropagation.canHoldInt(def)) {
+            Value value = null;
+            for (JMethod callee : icfg.getCalleesOf(callSite)) {
+                Value summary = librarySummaries.get(callee.getSignature());
+                if (summary != null) {
+                    value = value == null ? summary : cp.meetValue(value, summary);
+                }
             }
-        });
+            if (value != null) {
+                CPFact fact = out.copy();
+                fact.update(def, value);
+                return fact;
+            }
+        }
         return out;
     }
 
     @Override
     protected CPFact transferCallEdge(CallEdge<Stmt> edge, CPFact callSiteOut) {
-        CPFact callOut = new CPFact();
-        List<Var> params = edge.getCallee().getIR().getParams();
-
         Invoke invoke = (Invoke) edge.getSource();
-        List<Var> args = invoke.getInvokeExp().getArgs();
-        for (int i = 0; i < args.size(); i++) {
-            Value val = callSiteOut.get(args.get(i));
-            callOut.update(params.get(i), val);
-        }
-
-        return callOut;
+        return CPFact.viewBinding(callSiteOut, invoke.getInvokeExp().getArgs(),
+                edge.getCallee().getIR().getParams());
     }
 
     @Override
     protected CPFact transferReturnEdge(ReturnEdge<Stmt> edge, CPFact returnOut) {
-        CPFact out = new CPFact();
-
-        edge.getCallSite().getDef().ifPresent(def -> {
-            if (def instanceof Var && ConstantPropagation.canHoldInt((Var) def)) {
-                List<Var> rvs = new LinkedList<>(edge.getReturnVars());
-                if (rvs.size() == 1) {
-                    out.update((Var) def, returnOut.get(rvs.get(0)));
-                } else {
-                    boolean eq = true;
-                    for (int i = 1; i < rvs.size(); i++) {
-                        if (returnOut.get(rvs.get(i)) != returnOut.get(rvs.get(i - 1))) {
-                            eq = false;
-                            break;
-                        }
-                    }
-                    if (eq) {
-                        out.update((Var) def, returnOut.get(rvs.get(0)));
-                    } else {
-                        out.update((Var) def, Value.getNAC());
-                    }
+        if (edge.getCallSite().getDef().orElse(null) instanceof Var def &&
+                ConstantPropagation.canHoldInt(def)) {
+            Value value = null;
+            for (Var rv : edge.getReturnVars()) {
+                Value rvValue = returnOut.get(rv);
+                if (value == null) {
+                    value = rvValue;
+                } else if (value != rvValue) {
+                    value = Value.getNAC();
+                    break;
                 }
             }
-        });
-
-        return out;
+            if (value != null) {
+                return CPFact.viewOf(def, value);
+            }
+        }
+        return CPFact.empty();
     }
 }
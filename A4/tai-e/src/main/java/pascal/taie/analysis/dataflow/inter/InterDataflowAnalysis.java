@@ -48,6 +48,15 @@ public interface InterDataflowAnalysis<Node, Fact> {
      */
     Fact newInitialFact();
 
+    /**
+     * @return the initial fact shared by the nodes whose facts have not
+     * been written by the solver. The solver never modifies this fact,
+     * and the analysis may return an unmodifiable fact.
+     */
+    default Fact getSharedInitialFact() {
+        return newInitialFact();
+    }
+
     /**
      * Meets a fact into another (target) fact.
      * This function will be used to handle control-flow confluences.
@@ -71,4 +80,23 @@ public interface InterDataflowAnalysis<Node, Fact> {
      * @return the result of edge transfer function.
      */
     Fact transferEdge(ICFGEdge<Node> edge, Fact out);
+
+    /**
+     * @return true if the solver needs to propagate facts along given
+     * edge, otherwise false, e.g., the call and return edges of the
+     * callees whose effects are given by summaries.
+     */
+    default boolean needTransferEdge(ICFGEdge<Node> edge) {
+        return true;
+    }
+
+    /**
+     * @param edge the ICFG edge whose source has been processed.
+     * @param out  the OUT fact of source node of the edge.
+     * @return false if the solver can skip given edge, as it cannot be
+     * taken under the OUT fact of its source, otherwise true.
+     */
+    default boolean isFeasible(ICFGEdge<Node> edge, Fact out) {
+        return true;
+    }
 }
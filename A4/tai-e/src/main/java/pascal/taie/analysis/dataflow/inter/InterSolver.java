@@ -24,15 +24,35 @@ package pascal.taie.analysis.dataflow.inter;
 
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.graph.MergedNode;
+import pascal.taie.util.graph.MergedSCCGraph;
+import pascal.taie.util.graph.SimpleGraph;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Solver for inter-procedural data-flow analysis.
  * The workload of inter-procedural analysis is heavy, thus we always
  * adopt work-list algorithm for efficiency.
+ * <p>
+ * In parallel mode, the solver first condenses the call graph into SCCs,
+ * and solves the SCCs wave by wave in topological order, where the SCCs
+ * in the same wave do not call each other, thus they are solved in
+ * parallel. Facts may also flow back from callees to callers through
+ * {@link pascal.taie.analysis.graph.icfg.ReturnEdge}s, thus a final pass,
+ * which starts from the successors in other SCCs of the nodes whose
+ * facts changed, then reaches the same fixed point as the sequential solver.
+ * The transfer functions of the analysis must be thread-safe in this mode.
  */
 class InterSolver<Method, Node, Fact> {
 
@@ -42,25 +62,52 @@ class InterSolver<Method, Node, Fact> {
 
     private DataflowResult<Node, Fact> result;
 
-    private Queue<Node> workList;
+    /**
+     * The fact shared by the nodes whose facts have not been written.
+     */
+    private Fact initialFact;
+
+    private final boolean parallel;
+
+    private InterWorkList<Method, Node> workList;
+
+    /**
+     * In parallel mode, the nodes which are connected to a node in another
+     * SCC whose out fact has changed during the solving of that SCC.
+     */
+    private Set<Node> boundaryNodes;
 
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
                 ICFG<Method, Node> icfg) {
+        this(analysis, icfg, false);
+    }
+
+    InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
+                ICFG<Method, Node> icfg, boolean parallel) {
         this.analysis = analysis;
         this.icfg = icfg;
+        this.parallel = parallel;
     }
 
     DataflowResult<Node, Fact> solve() {
-        result = new DataflowResult<>();
+        // the nodes whose facts have not been written share the initial
+        // fact, so that facts are only allocated for the nodes whose
+        // facts differ from the initial fact
+        initialFact = analysis.getSharedInitialFact();
+        result = new DataflowResult<>(initialFact);
         initialize();
         doSolve();
         return result;
     }
 
     private void initialize() {
-        for (Node node : icfg) {
-            result.setOutFact(node, analysis.newInitialFact());
-            result.setInFact(node, analysis.newInitialFact());
+        if (parallel) {
+            // allocate all facts up front, as the SCCs are solved
+            // in parallel and must not modify the result concurrently
+            for (Node node : icfg) {
+                result.setInFact(node, analysis.newInitialFact());
+                result.setOutFact(node, analysis.newInitialFact());
+            }
         }
         // initialize entry node of each entry method
         icfg.entryMethods().forEach(m -> {
@@ -69,28 +116,153 @@ class InterSolver<Method, Node, Fact> {
     }
 
     private void doSolve() {
-        List<Node> wl = new LinkedList<>();
-        wl.addAll(icfg.getNodes());
-
-        while (!wl.isEmpty()) {
-            wl.stream().findFirst().ifPresent(node -> {
-                // meet out of all predecessors to the current node's in
-                Fact in = result.getInFact(node);
-                // meet out of all transferred predecessors to the current node's in
-                icfg.getInEdgesOf(node).forEach(e -> {
-                    this.analysis.meetInto(analysis.transferEdge(e, result.getOutFact(e.getSource())), in);
-                });
-                // update in of node
+        workList = new InterWorkList<>(icfg);
+        // nodes which have been processed at least once
+        // (not pre-sized, as counting the nodes of an ICFG which
+        // is constructed on demand would build the whole ICFG)
+        Set<Node> visited = Sets.newSet();
+        if (parallel) {
+            boundaryNodes = Sets.newConcurrentSet();
+            solveSCCs();
+            // all nodes have been processed in their SCCs, and only the
+            // nodes reached by changed facts from other SCCs are processed
+            // again to propagate these facts across SCCs
+            icfg.forEach(visited::add);
+            boundaryNodes.forEach(workList::add);
+            boundaryNodes = null;
+        } else {
+            icfg.entryMethods().forEach(m -> workList.add(icfg.getEntryOf(m)));
+        }
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            boolean changed = process(node);
+            // successors must be processed at least once after the node
+            // is reached, even if the out fact of the node does not change
+            if (visited.add(node) | changed) {
+                forEachSucc(node, workList::add);
+            }
+        }
+    }
+
+    /**
+     * Meets the transferred out facts of all predecessors into the in fact
+     * of given node, and then applies the node transfer function.
+     *
+     * @return true if the out fact of the node changes, otherwise false.
+     */
+    private boolean process(Node node) {
+        Fact in = result.getInFact(node);
+        boolean newIn = in == initialFact;
+        if (newIn) {
+            in = analysis.newInitialFact();
+        }
+        for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+            if (analysis.needTransferEdge(edge)) {
+                Fact predOut = result.getOutFact(edge.getSource());
+                if (analysis.isFeasible(edge, predOut)) {
+                    analysis.meetInto(analysis.transferEdge(edge, predOut), in);
+                }
+            }
+        }
+        if (newIn) {
+            if (in.equals(initialFact)) {
+                // nothing flows into the node yet
+                in = initialFact;
+            } else {
                 result.setInFact(node, in);
+            }
+        }
+        Fact out = result.getOutFact(node);
+        if (out == initialFact) {
+            out = analysis.newInitialFact();
+            if (analysis.transferNode(node, in, out)) {
+                result.setOutFact(node, out);
+                return true;
+            }
+            return false;
+        }
+        return analysis.transferNode(node, in, out);
+    }
+
+    /**
+     * Performs given action on the successors of given node which are
+     * connected by the feasible edges that the analysis transfers.
+     */
+    private void forEachSucc(Node node, Consumer<Node> action) {
+        Fact out = result.getOutFact(node);
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+            if (analysis.needTransferEdge(edge) &&
+                    analysis.isFeasible(edge, out)) {
+                action.accept(edge.getTarget());
+            }
+        }
+    }
 
-                // transfer node
-                boolean changed = this.analysis.transferNode(node, in, result.getOutFact(node));
-                if (changed) {
-                    // push successors to wl
-                    wl.addAll(icfg.getSuccsOf(node));
+    /**
+     * Solves the SCCs of the call graph in topological waves in parallel.
+     */
+    private void solveSCCs() {
+        SimpleGraph<Method> callGraph = new SimpleGraph<>();
+        MultiMap<Method, Node> nodesOf = Maps.newMultiMap();
+        for (Node node : icfg) {
+            Method method = icfg.getContainingMethodOf(node);
+            callGraph.addNode(method);
+            nodesOf.put(method, node);
+            if (icfg.isCallSite(node)) {
+                icfg.getCalleesOf(node).forEach(callee ->
+                        callGraph.addEdge(method, callee));
+            }
+        }
+        MergedSCCGraph<Method> sccGraph = new MergedSCCGraph<>(callGraph);
+        // the SCCs in a wave are those whose callers have all been solved
+        Map<MergedNode<Method>, Integer> inDegrees = Maps.newMap();
+        List<MergedNode<Method>> wave = new ArrayList<>();
+        for (MergedNode<Method> scc : sccGraph) {
+            int inDegree = (int) sccGraph.getPredsOf(scc)
+                    .stream()
+                    .filter(pred -> !pred.equals(scc))
+                    .count();
+            inDegrees.put(scc, inDegree);
+            if (inDegree == 0) {
+                wave.add(scc);
+            }
+        }
+        while (!wave.isEmpty()) {
+            wave.parallelStream().forEach(scc -> solveSCC(scc, nodesOf));
+            List<MergedNode<Method>> next = new ArrayList<>();
+            for (MergedNode<Method> scc : wave) {
+                for (MergedNode<Method> succ : sccGraph.getSuccsOf(scc)) {
+                    if (!succ.equals(scc) &&
+                            inDegrees.merge(succ, -1, Integer::sum) == 0) {
+                        next.add(succ);
+                    }
                 }
-                wl.remove(node);
-            });
+            }
+            wave = next;
+        }
+    }
+
+    /**
+     * Solves the nodes of the methods in given SCC to a local fixed point.
+     * The solving only writes the facts of these nodes, and only reads
+     * the facts of the nodes in the SCCs of other waves.
+     */
+    private void solveSCC(MergedNode<Method> scc, MultiMap<Method, Node> nodesOf) {
+        Set<Node> nodes = Sets.newSet();
+        scc.getNodes().forEach(method -> nodes.addAll(nodesOf.get(method)));
+        Queue<Node> localWorkList = new SetQueue<>();
+        localWorkList.addAll(nodes);
+        while (!localWorkList.isEmpty()) {
+            Node node = localWorkList.poll();
+            if (process(node)) {
+                forEachSucc(node, succ -> {
+                    if (nodes.contains(succ)) {
+                        localWorkList.add(succ);
+                    } else {
+                        boundaryNodes.add(succ);
+                    }
+                });
+            }
         }
     }
 }
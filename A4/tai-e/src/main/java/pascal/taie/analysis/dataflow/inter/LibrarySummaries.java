@@ -0,0 +1,100 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.config.ConfigException;
+import pascal.taie.util.collection.Maps;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes the file of library method summaries for
+ * {@link InterConstantPropagation}.
+ * <p>
+ * The first line of the file is its version, and each following line
+ * holds the signature of a method and the {@link Value} it returns in
+ * any context, separated by a tab.
+ */
+final class LibrarySummaries {
+
+    /**
+     * Version of the file format. It should be increased whenever the
+     * format or the semantics of the summaries change, so that stale
+     * files are rejected.
+     */
+    private static final String VERSION = "tai-e-lib-summaries 2";
+
+    private LibrarySummaries() {
+    }
+
+    /**
+     * @return the map from method signature to its return value.
+     */
+    static Map<String, Value> read(String file) {
+        Map<String, Value> summaries = Maps.newMap();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(file))) {
+            String version = reader.readLine();
+            if (!VERSION.equals(version)) {
+                throw new ConfigException("Library summary file " + file +
+                        " has version " + version + ", expected " + VERSION);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.lastIndexOf('\t');
+                summaries.put(line.substring(0, tab),
+                        parseValue(line.substring(tab + 1)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read library summaries", e);
+        }
+        return summaries;
+    }
+
+    /**
+     * Writes given summaries to given file, sorted by method signatures.
+     */
+    static void write(Map<String, Value> summaries, String file) {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(file)))) {
+            out.println(VERSION);
+            new TreeMap<>(summaries).forEach((method, value) ->
+                    out.println(method + '\t' + value));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write library summaries", e);
+        }
+    }
+
+    private static Value parseValue(String value) {
+        return switch (value) {
+            case "UNDEF" -> Value.getUndef();
+            case "NAC" -> Value.getNAC();
+            default -> Value.makeConstant(Integer.parseInt(value));
+        };
+    }
+}
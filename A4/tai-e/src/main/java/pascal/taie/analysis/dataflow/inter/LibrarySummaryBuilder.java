@@ -0,0 +1,139 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.analysis.ProgramAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.PrimitiveType;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Computes the summaries of the library methods for
+ * {@link InterConstantPropagation}, and writes them to the file given
+ * by option "file". This analysis is meant to be run once on the JDK
+ * at build time, and the resulting file is given to option "lib-summary"
+ * of {@link InterConstantPropagation}.
+ * <p>
+ * The summary of a method is the constant it returns in any context,
+ * computed by intra-procedural constant propagation in which the
+ * parameters are NAC. As the summarized methods are not analyzed by
+ * {@link InterConstantPropagation}, only the methods without effects
+ * beyond their return values are summarized, i.e., the methods that
+ * contain no calls, which may reach application code (e.g., callbacks),
+ * and no field or array stores. Methods that do not return a constant
+ * are not summarized either, as analyzing them gives the same or more
+ * precise results.
+ */
+public class LibrarySummaryBuilder extends ProgramAnalysis {
+
+    public static final String ID = "lib-summary-builder";
+
+    private static final Logger logger = LogManager.getLogger(LibrarySummaryBuilder.class);
+
+    private final ThrowAnalysis throwAnalysis;
+
+    private final CFGBuilder cfgBuilder;
+
+    private final ConstantPropagation cp;
+
+    public LibrarySummaryBuilder(AnalysisConfig config) {
+        super(config);
+        throwAnalysis = new ThrowAnalysis(new AnalysisConfig(ThrowAnalysis.ID,
+                "exception", "explicit", "algorithm", "intra"));
+        cfgBuilder = new CFGBuilder(new AnalysisConfig(CFGBuilder.ID,
+                "exception", "explicit", "dump", false));
+        cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
+    }
+
+    @Override
+    public Object analyze() {
+        Map<String, Value> summaries = Maps.newMap();
+        World.get().getClassHierarchy()
+                .allClasses()
+                .filter(c -> !c.isApplication())
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative() && returnsInt(m))
+                .forEach(m -> {
+                    Value summary = summarize(m);
+                    if (summary != null) {
+                        summaries.put(m.getSignature(), summary);
+                    }
+                });
+        String file = getOptions().getString("file");
+        LibrarySummaries.write(summaries, file);
+        logger.info("Wrote {} library summaries to {}", summaries.size(), file);
+        return null;
+    }
+
+    private static boolean returnsInt(JMethod method) {
+        return method.getReturnType() instanceof PrimitiveType type &&
+                switch (type) {
+                    case BYTE, SHORT, INT, CHAR, BOOLEAN -> true;
+                    default -> false;
+                };
+    }
+
+    /**
+     * @return the constant returned by given method in any context,
+     * or null if the method cannot be summarized.
+     */
+    private Value summarize(JMethod method) {
+        IR ir = method.getIR();
+        if (ir.getReturnVars().isEmpty() ||
+                ir.getStmts().stream().anyMatch(stmt -> stmt instanceof Invoke ||
+                        stmt instanceof StoreField || stmt instanceof StoreArray)) {
+            return null;
+        }
+        ir.getResult(ThrowAnalysis.ID, () -> throwAnalysis.analyze(ir));
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID, () -> cfgBuilder.analyze(ir));
+        DataflowResult<Stmt, CPFact> result = cp.analyze(ir);
+        CPFact exitIn = result.getInFact(cfg.getExit());
+        Value value = Value.getUndef();
+        for (Var ret : ir.getReturnVars()) {
+            value = cp.meetValue(value, exitIn.get(ret));
+        }
+        // the results are only needed for computing the summary
+        ir.clearResult(ThrowAnalysis.ID);
+        ir.clearResult(CFGBuilder.ID);
+        return value.isConstant() ? value : null;
+    }
+}
@@ -22,6 +22,8 @@
 
 package pascal.taie.analysis.graph.callgraph;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
 import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.stmt.Invoke;
@@ -29,22 +31,68 @@ import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implementation of the CHA algorithm.
+ * <p>
+ * The callees of a call site only depend on the declaring class and
+ * subsignature of its method reference and on its call kind, thus
+ * the results of {@link #resolve(Invoke)} are memoized, and call sites
+ * which refer to the same method are resolved by a single lookup.
+ * The cache is safe for concurrent use. Dispatch is delegated to
+ * the dispatch tables of {@link ClassHierarchy}.
  */
-class CHABuilder implements CGBuilder<Invoke, JMethod> {
+public class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
-    private ClassHierarchy hierarchy;
+    private static final Logger logger = LogManager.getLogger(CHABuilder.class);
+
+    private final ClassHierarchy hierarchy;
+
+    /**
+     * Map from resolution key to the (unmodifiable) resolved callees.
+     */
+    private final ConcurrentMap<ResolveKey, Set<JMethod>> resolveCache =
+            Maps.newConcurrentMap();
+
+    private final LongAdder resolveHits = new LongAdder();
+
+    private final LongAdder resolveMisses = new LongAdder();
+
+    private final boolean parallel;
+
+    public CHABuilder() {
+        this(false);
+    }
+
+    /**
+     * @param parallel if true, {@link #build()} processes the methods which
+     *                 become reachable at the same time in parallel.
+     */
+    public CHABuilder(boolean parallel) {
+        hierarchy = World.get().getClassHierarchy();
+        this.parallel = parallel;
+    }
 
     @Override
     public CallGraph<Invoke, JMethod> build() {
-        hierarchy = World.get().getClassHierarchy();
-        return buildCallGraph(World.get().getMainMethod());
+        JMethod entry = World.get().getMainMethod();
+        CallGraph<Invoke, JMethod> callGraph = parallel ?
+                buildCallGraphInParallel(entry) : buildCallGraph(entry);
+        logStatistics();
+        return callGraph;
     }
 
     private CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
@@ -53,6 +101,16 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
         Stack<JMethod> stack = new Stack<>();
         stack.add(entry);
+        explore(callGraph, stack);
+
+        return callGraph;
+    }
+
+    /**
+     * Adds the methods in given stack, and the methods transitively
+     * called by them, to the call graph.
+     */
+    private void explore(DefaultCallGraph callGraph, Stack<JMethod> stack) {
         while (!stack.isEmpty()) {
             JMethod current = stack.pop();
             if (callGraph.addReachableMethod(current)) {
@@ -71,53 +129,222 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
                 });
             }
         }
+    }
+
+    /**
+     * Patches a call graph built by this builder for a change of the
+     * class hierarchy, e.g., classes being added, removed or replaced.
+     * <p>
+     * The callees of a call site only depend on the classes which are
+     * subtypes of the declaring class of its method reference, and on
+     * the supertypes of these classes, from which they inherit methods.
+     * Thus, only the call sites whose declaring classes are supertypes of
+     * the changed classes or of their subtypes, before or after the change,
+     * are resolved again, and the other call edges are kept. The methods
+     * which are no longer declared by their classes, or no longer
+     * reachable, are removed from the call graph.
+     *
+     * @param callGraph      the call graph to be patched
+     * @param changedClasses the classes which are changed by {@code change}
+     * @param change         performs the change on the class hierarchy, via
+     *                       {@link ClassHierarchy#addClass(JClass)},
+     *                       {@link ClassHierarchy#removeClass(JClass)} or
+     *                       {@link ClassHierarchy#replaceClass}
+     */
+    public void update(DefaultCallGraph callGraph,
+                       Collection<JClass> changedClasses, Runnable change) {
+        Set<JClass> affected = Sets.newSet();
+        collectAffectedClasses(changedClasses, affected);
+        change.run();
+        collectAffectedClasses(changedClasses, affected);
+        resolveCache.keySet().removeIf(key -> affected.contains(key.jclass()));
+
+        Stack<JMethod> stack = new Stack<>();
+        for (JMethod method : List.copyOf(callGraph.getNodes())) {
+            if (affected.contains(method.getDeclaringClass()) &&
+                    !isDeclared(method)) {
+                if (callGraph.entryMethods().anyMatch(method::equals)) {
+                    // the entry method has been replaced
+                    JMethod entry = method.getDeclaringClass()
+                            .getDeclaredMethod(method.getSubsignature());
+                    if (entry != null) {
+                        callGraph.addEntryMethod(entry);
+                        stack.add(entry);
+                    }
+                }
+                callGraph.removeReachableMethod(method);
+            }
+        }
+        int resolved = 0;
+        for (JMethod method : callGraph.getNodes()) {
+            for (Invoke callSite : callGraph.getCallSitesIn(method)) {
+                if (affected.contains(callSite.getMethodRef().getDeclaringClass())) {
+                    ++resolved;
+                    callGraph.removeEdgesOutOf(callSite);
+                    resolve(callSite).forEach(callee -> {
+                        callGraph.addEdge(new Edge<>(CallGraphs.getCallKind(callSite), callSite, callee));
+                        stack.add(callee);
+                    });
+                }
+            }
+        }
+        explore(callGraph, stack);
+        int removed = removeUnreachableMethods(callGraph);
+        logger.info("Updated call graph for {} changed classes: {} call sites" +
+                        " resolved again, {} unreachable methods removed",
+                changedClasses.size(), resolved, removed);
+    }
+
+    /**
+     * Adds the supertypes of given classes and of their subtypes
+     * in the current class hierarchy to {@code affected}.
+     */
+    private void collectAffectedClasses(
+            Collection<JClass> changedClasses, Set<JClass> affected) {
+        Set<JClass> visited = Sets.newSet();
+        Stack<JClass> stack = new Stack<>();
+        changedClasses.forEach(c -> stack.addAll(hierarchy.getAllSubclassesOf(c)));
+        while (!stack.isEmpty()) {
+            JClass c = stack.pop();
+            if (visited.add(c)) {
+                affected.add(c);
+                if (c.getSuperClass() != null) {
+                    stack.add(c.getSuperClass());
+                }
+                stack.addAll(c.getInterfaces());
+            }
+        }
+    }
+
+    /**
+     * @return true if given method is still declared by its class,
+     * and the class is still in the class hierarchy.
+     */
+    private boolean isDeclared(JMethod method) {
+        JClass jclass = method.getDeclaringClass();
+        return hierarchy.getClass(jclass.getClassLoader(), jclass.getName()) == jclass &&
+                jclass.getDeclaredMethod(method.getSubsignature()) == method;
+    }
+
+    /**
+     * Removes the methods which are not reachable from the entry methods.
+     *
+     * @return the number of removed methods.
+     */
+    private static int removeUnreachableMethods(DefaultCallGraph callGraph) {
+        Set<JMethod> reached = Sets.newSet();
+        Stack<JMethod> stack = new Stack<>();
+        callGraph.entryMethods().forEach(stack::add);
+        while (!stack.isEmpty()) {
+            JMethod method = stack.pop();
+            if (reached.add(method)) {
+                callGraph.getCallSitesIn(method).forEach(callSite ->
+                        stack.addAll(callGraph.getCalleesOf(callSite)));
+            }
+        }
+        List<JMethod> unreachable = callGraph.reachableMethods()
+                .filter(m -> !reached.contains(m))
+                .toList();
+        unreachable.forEach(callGraph::removeReachableMethod);
+        return unreachable.size();
+    }
 
+    /**
+     * Builds the call graph frontier by frontier, where the frontier
+     * consists of the methods which were found reachable while
+     * processing the previous frontier. The methods of a frontier are
+     * processed on the common {@link java.util.concurrent.ForkJoinPool},
+     * which builds their IR and resolves their call sites, as these
+     * dominate the cost. The results are then merged into the call graph
+     * on the current thread in the order of the frontier, thus the
+     * call graph is the same in every run.
+     */
+    private CallGraph<Invoke, JMethod> buildCallGraphInParallel(JMethod entry) {
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        callGraph.addEntryMethod(entry);
+        Set<JMethod> discovered = Sets.newSet();
+        discovered.add(entry);
+        List<JMethod> frontier = List.of(entry);
+        while (!frontier.isEmpty()) {
+            List<List<Edge<Invoke, JMethod>>> edges = frontier.parallelStream()
+                    .map(this::resolveCallEdges)
+                    .toList();
+            List<JMethod> next = new ArrayList<>();
+            for (int i = 0; i < frontier.size(); ++i) {
+                callGraph.addReachableMethod(frontier.get(i));
+                for (Edge<Invoke, JMethod> edge : edges.get(i)) {
+                    callGraph.addEdge(edge);
+                    if (discovered.add(edge.getCallee())) {
+                        next.add(edge.getCallee());
+                    }
+                }
+            }
+            frontier = next;
+        }
         return callGraph;
     }
 
     /**
-     * Resolves call targets (callees) of a call site via CHA.
+     * @return the call edges out of given method, ordered by their call
+     * sites, and by their callees for the same call site.
      */
-    private Set<JMethod> resolve(Invoke callSite) {
-        Set<JMethod> ret = new HashSet<>();
+    private List<Edge<Invoke, JMethod>> resolveCallEdges(JMethod method) {
+        if (method.isAbstract()) {
+            return List.of();
+        }
+        List<Edge<Invoke, JMethod>> edges = new ArrayList<>();
+        method.getIR().forEach(stmt -> {
+            if (stmt instanceof Invoke callSite) {
+                CallKind kind = CallGraphs.getCallKind(callSite);
+                resolve(callSite).stream()
+                        .sorted(Comparator.comparing(JMethod::toString))
+                        .forEach(callee -> edges.add(new Edge<>(kind, callSite, callee)));
+            }
+        });
+        return edges;
+    }
 
+    /**
+     * Resolves call targets (callees) of a call site via CHA.
+     *
+     * @return the unmodifiable set of callees, which is shared by
+     * the call sites with the same method reference and call kind.
+     */
+    public Set<JMethod> resolve(Invoke callSite) {
         MethodRef methodRef = callSite.getMethodRef();
-        CallKind callKind = CallGraphs.getCallKind(callSite);
+        ResolveKey key = new ResolveKey(methodRef.getDeclaringClass(),
+                methodRef.getSubsignature(), CallGraphs.getCallKind(callSite));
+        Set<JMethod> callees = resolveCache.get(key);
+        if (callees != null) {
+            resolveHits.increment();
+            return callees;
+        }
+        resolveMisses.increment();
+        callees = Collections.unmodifiableSet(resolve(key));
+        Set<JMethod> prev = resolveCache.putIfAbsent(key, callees);
+        return prev != null ? prev : callees;
+    }
 
-        JMethod m = null;
-        switch (callKind) {
+    private Set<JMethod> resolve(ResolveKey key) {
+        Set<JMethod> ret = new HashSet<>();
+        JClass clazz = key.jclass();
+        Subsignature subsignature = key.subsignature();
+        JMethod m;
+        switch (key.callKind()) {
             case STATIC, SPECIAL:
-                m = dispatch(methodRef.getDeclaringClass(), methodRef.getSubsignature());
+                m = dispatch(clazz, subsignature);
                 if (m != null) {
                     ret.add(m);
                 }
                 break;
             case VIRTUAL, INTERFACE:
-                JClass clazz = methodRef.getDeclaringClass();
-                // find inside the class
-                m = dispatch(clazz, methodRef.getSubsignature());
-                if (m != null) {
-                    ret.add(m);
-                }
-                // find all subclasses/implementors of the class
-                Stack<JClass> stack = new Stack<>();
-                stack.addAll(hierarchy.getDirectSubclassesOf(clazz));
-                if (clazz.isInterface()) {
-                    stack.addAll(hierarchy.getDirectImplementorsOf(clazz));
-                    stack.addAll(hierarchy.getDirectSubinterfacesOf(clazz));
-                }
-                while (!stack.isEmpty()) {
-                    JClass c = stack.pop();
-                    m = dispatch(c, methodRef.getSubsignature());
+                // dispatch on the class and all its
+                // subclasses/subinterfaces/implementors
+                for (JClass c : hierarchy.getAllSubclassesOf(clazz)) {
+                    m = dispatch(c, subsignature);
                     if (m != null) {
                         ret.add(m);
                     }
-
-                    stack.addAll(hierarchy.getDirectSubclassesOf(c));
-                    if (c.isInterface()) {
-                        stack.addAll(hierarchy.getDirectImplementorsOf(c));
-                        stack.addAll(hierarchy.getDirectSubinterfacesOf(c));
-                    }
                 }
                 break;
         }
@@ -132,15 +359,23 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
      * can be found.
      */
     private JMethod dispatch(JClass jclass, Subsignature subsignature) {
-        JMethod ret = jclass.getDeclaredMethod(subsignature);
-        if (ret != null && !ret.isAbstract()) {
-            return ret;
-        }
+        return hierarchy.dispatch(jclass, subsignature);
+    }
 
-        if (jclass.getSuperClass() != null) {
-            return dispatch(jclass.getSuperClass(), subsignature);
-        }
+    /**
+     * Logs the hit rate of the resolution cache.
+     */
+    public void logStatistics() {
+        logHitRate("resolve", resolveHits.sum(), resolveMisses.sum());
+    }
+
+    private static void logHitRate(String cache, long hits, long misses) {
+        long total = hits + misses;
+        logger.info("CHA {} cache: {} hits, {} misses, hit rate {}%", cache,
+                hits, misses, total == 0 ? 0 : String.format("%.2f", 100.0 * hits / total));
+    }
 
-        return null;
+    private record ResolveKey(JClass jclass, Subsignature subsignature,
+                              CallKind callKind) {
     }
 }
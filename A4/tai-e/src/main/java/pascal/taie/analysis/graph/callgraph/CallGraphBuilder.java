@@ -55,16 +55,61 @@ public class CallGraphBuilder extends ProgramAnalysis {
 
     @Override
     public CallGraph<Invoke, JMethod> analyze() {
+        String snapshot = getOptions().getString("snapshot");
+        String snapshotFile = getOptions().getString("snapshot-file");
+        if (!snapshot.equals("none") && snapshotFile == null) {
+            throw new ConfigException("snapshot-file is not given for snapshot " + snapshot);
+        }
+        CallGraph<Invoke, JMethod> callGraph;
+        if (snapshot.equals("read")) {
+            callGraph = CallGraphSnapshot.read(snapshotFile, algorithm);
+            if (callGraph != null) {
+                logger.info("Read call graph from snapshot {}", snapshotFile);
+            } else if (isBuiltByPTA()) {
+                // the points-to analysis required by the algorithm
+                // has not been run in this mode
+                throw new ConfigException("No valid call graph snapshot in " +
+                        snapshotFile + ", run with snapshot:write first");
+            } else {
+                logger.info("No valid call graph snapshot in {}, rebuilding it",
+                        snapshotFile);
+                callGraph = build();
+                CallGraphSnapshot.write(callGraph, snapshotFile, algorithm);
+            }
+        } else {
+            callGraph = build();
+            if (snapshot.equals("write")) {
+                CallGraphSnapshot.write(callGraph, snapshotFile, algorithm);
+            }
+        }
+        takeAction(callGraph);
+        return callGraph;
+    }
+
+    /**
+     * @return true if the call graph of the algorithm is given by
+     * a points-to analysis, instead of being built by this analysis.
+     */
+    private boolean isBuiltByPTA() {
+        return !algorithm.equals("cha") && !algorithm.equals("rta") &&
+                !algorithm.equals("xta");
+    }
+
+    private CallGraph<Invoke, JMethod> build() {
         CGBuilder<Invoke, JMethod> builder;
         if (algorithm.equals("cha")) {
-            builder = new CHABuilder();
+            builder = new CHABuilder(
+                    getOptions().getBooleanOrDefault("parallel", false));
+        } else if (algorithm.equals("rta")) {
+            builder = new RTABuilder();
+        } else if (algorithm.equals("xta")) {
+            builder = new XTABuilder();
         } else {
             throw new ConfigException("Unknown call graph building algorithm: " + algorithm);
         }
         ClassHierarchyImpl.setCheckCHA(true);
         CallGraph<Invoke, JMethod> callGraph = builder.build();
         ClassHierarchyImpl.setCheckCHA(false);
-        takeAction(callGraph);
         return callGraph;
     }
 
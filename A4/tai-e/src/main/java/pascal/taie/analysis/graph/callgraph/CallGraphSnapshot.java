@@ -0,0 +1,313 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.config.Options;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.StringReps;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.Maps;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads and writes binary snapshots of call graphs, so that a call graph
+ * built in one run can be reused by later runs on the same program.
+ * <p>
+ * A snapshot consists of
+ * <ul>
+ *     <li>a header: {@link #MAGIC}, {@link #VERSION}, and the SHA-256 hash
+ *     of the program (see {@link #hashProgram(String)}),</li>
+ *     <li>the method table: the signatures of the methods in the call graph,
+ *     sorted, each as its length and UTF-8 bytes,</li>
+ *     <li>the IDs (indexes in the method table) of the entry methods
+ *     and of the reachable methods,</li>
+ *     <li>the call sites which have callees, each as the ID of its
+ *     container, its index in the IR of the container, its call kind,
+ *     and the IDs of its callees.</li>
+ * </ul>
+ * All numbers are big-endian ints, except that call kinds are bytes.
+ * A snapshot is mapped into memory when it is read.
+ */
+final class CallGraphSnapshot {
+
+    private static final Logger logger = LogManager.getLogger(CallGraphSnapshot.class);
+
+    private static final int MAGIC = 0x54434731; // "TCG1"
+
+    /**
+     * Version of the snapshot format. It should be increased whenever
+     * the format changes, so that stale snapshots are rejected.
+     */
+    private static final int VERSION = 1;
+
+    private static final int HASH_LENGTH = 32;
+
+    private CallGraphSnapshot() {
+    }
+
+    /**
+     * Writes given call graph to given file.
+     *
+     * @param key the string which identifies how the call graph is built,
+     *            e.g., the algorithm, which is hashed together with
+     *            the program.
+     */
+    static void write(CallGraph<Invoke, JMethod> callGraph, String file, String key) {
+        Comparator<JMethod> cmp = Comparator.comparing(JMethod::toString);
+        List<JMethod> methods = Stream.concat(callGraph.reachableMethods(),
+                        callGraph.edges().map(Edge::getCallee))
+                .distinct()
+                .sorted(cmp)
+                .toList();
+        Map<JMethod, Integer> ids = Maps.newMap(methods.size());
+        methods.forEach(m -> ids.put(m, ids.size()));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Path.of(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write(hashProgram(key));
+            out.writeInt(methods.size());
+            for (JMethod method : methods) {
+                byte[] signature = method.getSignature()
+                        .getBytes(StandardCharsets.UTF_8);
+                out.writeInt(signature.length);
+                out.write(signature);
+            }
+            writeIds(out, callGraph.entryMethods().map(ids::get).toList());
+            writeIds(out, callGraph.reachableMethods().map(ids::get).sorted().toList());
+            List<Invoke> callSites = methods.stream()
+                    .filter(callGraph::contains)
+                    .flatMap(callGraph::callSitesIn)
+                    .filter(cs -> !callGraph.getCalleesOf(cs).isEmpty())
+                    .toList();
+            out.writeInt(callSites.size());
+            for (Invoke callSite : callSites) {
+                out.writeInt(ids.get(callGraph.getContainerOf(callSite)));
+                out.writeInt(callSite.getIndex());
+                out.writeByte(CallGraphs.getCallKind(callSite).ordinal());
+                writeIds(out, callGraph.getCalleesOf(callSite)
+                        .stream()
+                        .map(ids::get)
+                        .sorted()
+                        .toList());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write call graph snapshot", e);
+        }
+        logger.info("Wrote call graph snapshot ({} methods) to {}",
+                methods.size(), file);
+    }
+
+    private static void writeIds(DataOutputStream out, List<Integer> ids)
+            throws IOException {
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    /**
+     * Reads a call graph from given file.
+     *
+     * @param key the same key as the one given to
+     *            {@link #write(CallGraph, String, String)}.
+     * @return the call graph, or null if the file does not exist, or it is
+     * not a snapshot of the current program built in the same way,
+     * or it is corrupted, e.g., truncated.
+     */
+    static @Nullable DefaultCallGraph read(String file, String key) {
+        Path path = Path.of(file);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.info("{} is not a call graph snapshot of version {}",
+                        file, VERSION);
+                return null;
+            }
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            if (!Arrays.equals(hash, hashProgram(key))) {
+                logger.info("Call graph snapshot {} is stale", file);
+                return null;
+            }
+            return readCallGraph(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // the lengths and IDs are out of range of the file
+            // or of the method table, or the call kinds are unknown
+            logger.info("Call graph snapshot {} is corrupted", file);
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read call graph snapshot", e);
+        }
+    }
+
+    private static @Nullable DefaultCallGraph readCallGraph(ByteBuffer buffer) {
+        ClassHierarchy hierarchy = World.get().getClassHierarchy();
+        JMethod[] methods = new JMethod[readLength(buffer, Integer.BYTES)];
+        for (int i = 0; i < methods.length; ++i) {
+            byte[] bytes = new byte[readLength(buffer, 1)];
+            buffer.get(bytes);
+            String signature = new String(bytes, StandardCharsets.UTF_8);
+            methods[i] = resolveMethod(hierarchy, signature);
+            if (methods[i] == null) {
+                logger.info("Method {} in call graph snapshot is not found",
+                        signature);
+                return null;
+            }
+        }
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        for (int id : readIds(buffer)) {
+            callGraph.addEntryMethod(methods[id]);
+        }
+        for (int id : readIds(buffer)) {
+            callGraph.addReachableMethod(methods[id]);
+        }
+        CallKind[] kinds = CallKind.values();
+        // each call site takes at least its container, index, kind,
+        // and number of callees
+        int callSites = readLength(buffer, 3 * Integer.BYTES + 1);
+        for (int i = 0; i < callSites; ++i) {
+            IR ir = methods[buffer.getInt()].getIR();
+            int index = buffer.getInt();
+            CallKind kind = kinds[buffer.get()];
+            if (index >= ir.getStmts().size() ||
+                    !(ir.getStmt(index) instanceof Invoke callSite)) {
+                logger.info("Call site {} of {} in call graph snapshot" +
+                        " is not found", index, ir.getMethod());
+                return null;
+            }
+            for (int id : readIds(buffer)) {
+                callGraph.addEdge(new Edge<>(kind, callSite, methods[id]));
+            }
+        }
+        return callGraph;
+    }
+
+    private static int[] readIds(ByteBuffer buffer) {
+        int[] ids = new int[readLength(buffer, Integer.BYTES)];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = buffer.getInt();
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the length of an array whose elements take at least given
+     * number of bytes each, so that a corrupted length never allocates
+     * an array larger than the rest of the snapshot.
+     *
+     * @throws BufferUnderflowException if the length is negative or
+     *                                  the rest of the snapshot is too short.
+     */
+    private static int readLength(ByteBuffer buffer, int elementBytes) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / elementBytes) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static @Nullable JMethod resolveMethod(
+            ClassHierarchy hierarchy, String signature) {
+        JClass jclass = hierarchy.getClass(StringReps.getClassNameOf(signature));
+        return jclass == null ? null : jclass.getDeclaredMethod(
+                Subsignature.get(StringReps.getSubsignatureOf(signature)));
+    }
+
+    /**
+     * Hashes the program being analyzed, i.e., the contents of the files
+     * on its class path (directories are walked in sorted order), its main
+     * class and the version of the Java library, together with given key.
+     */
+    private static byte[] hashProgram(String key) {
+        Options options = World.get().getOptions();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        String header = String.join("\n", key, options.getMainClass(),
+                Integer.toString(options.getJavaVersion()),
+                Boolean.toString(options.isPrependJVM()));
+        digest.update(header.getBytes(StandardCharsets.UTF_8));
+        String classPath = options.getClassPath();
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                hashPath(digest, Path.of(entry));
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void hashPath(MessageDigest digest, Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                digest.update(file.toString().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = new DigestInputStream(
+                        Files.newInputStream(file), digest)) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to hash " + path, e);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -77,6 +78,40 @@ public class DefaultCallGraph extends AbstractCallGraph<Invoke, JMethod> {
         }
     }
 
+    /**
+     * Removes a reachable method, its call sites, and the call edges
+     * out of and into it from this call graph.
+     *
+     * @return true if this call graph changed as a result of the call,
+     * otherwise false.
+     */
+    public boolean removeReachableMethod(JMethod method) {
+        if (reachableMethods.remove(method)) {
+            entryMethods.remove(method);
+            for (Invoke callSite : List.copyOf(callSitesIn.get(method))) {
+                removeEdgesOutOf(callSite);
+                callSiteToContainer.remove(callSite);
+            }
+            callSitesIn.removeAll(method);
+            for (Edge<Invoke, JMethod> edge : List.copyOf(calleeToEdges.get(method))) {
+                callSiteToEdges.remove(edge.getCallSite(), edge);
+            }
+            calleeToEdges.removeAll(method);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the call edges out of given call site from this call graph.
+     */
+    public void removeEdgesOutOf(Invoke callSite) {
+        for (Edge<Invoke, JMethod> edge : callSiteToEdges.get(callSite)) {
+            calleeToEdges.remove(edge.getCallee(), edge);
+        }
+        callSiteToEdges.removeAll(callSite);
+    }
+
     @Override
     public JMethod getContainerOf(Invoke invoke) {
         return invoke.getContainer();
@@ -0,0 +1,297 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.ir.exp.NewInstance;
+import pascal.taie.ir.exp.StringLiteral;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.AssignLiteral;
+import pascal.taie.ir.stmt.FieldStmt;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.ClassNames;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Common functionality of the call graph builders which resolve virtual
+ * calls by the sets of instantiated classes, i.e., RTA and XTA.
+ * <p>
+ * The instantiated classes are propagated among type sets. A virtual
+ * call site is dispatched on the classes in the type set of its container
+ * method which are subclasses of the declaring class of its method
+ * reference, and it is dispatched again whenever new classes flow into
+ * the type set. The subclasses decide how methods, fields and array
+ * elements are mapped to type sets. Static and special calls are
+ * resolved as in CHA.
+ */
+abstract class TypePropagationBuilder implements CGBuilder<Invoke, JMethod> {
+
+    protected final ClassHierarchy hierarchy;
+
+    private final CHABuilder cha;
+
+    /**
+     * java.lang.Object, the bound of the flows into and out of arrays.
+     */
+    private final JClass object;
+
+    private DefaultCallGraph callGraph;
+
+    /**
+     * Methods which have been found reachable but not processed yet.
+     */
+    private final Queue<JMethod> methodWorkList = new ArrayDeque<>();
+
+    /**
+     * Type sets which have received classes not propagated yet.
+     */
+    private final Queue<TypeSet> typeWorkList = new SetQueue<>();
+
+    TypePropagationBuilder() {
+        hierarchy = World.get().getClassHierarchy();
+        cha = new CHABuilder();
+        object = hierarchy.getJREClass(ClassNames.OBJECT);
+    }
+
+    /**
+     * @return the type set of classes which may be instantiated in,
+     * or flow into, given method.
+     */
+    protected abstract TypeSet getTypeSetOf(JMethod method);
+
+    /**
+     * @return the type set of classes which may be stored in given field.
+     */
+    protected abstract TypeSet getTypeSetOf(JField field);
+
+    /**
+     * @return the type set of classes which may be stored in arrays.
+     */
+    protected abstract TypeSet getArrayTypeSet();
+
+    @Override
+    public CallGraph<Invoke, JMethod> build() {
+        callGraph = new DefaultCallGraph();
+        JMethod entry = World.get().getMainMethod();
+        callGraph.addEntryMethod(entry);
+        methodWorkList.add(entry);
+        while (!methodWorkList.isEmpty() || !typeWorkList.isEmpty()) {
+            while (!methodWorkList.isEmpty()) {
+                processMethod(methodWorkList.poll());
+            }
+            if (!typeWorkList.isEmpty()) {
+                propagate(typeWorkList.poll());
+            }
+        }
+        return callGraph;
+    }
+
+    private void processMethod(JMethod method) {
+        if (!callGraph.addReachableMethod(method) || method.isAbstract()) {
+            return;
+        }
+        TypeSet typeSet = getTypeSetOf(method);
+        for (Stmt stmt : method.getIR()) {
+            if (stmt instanceof New newStmt &&
+                    newStmt.getRValue() instanceof NewInstance newInstance) {
+                addType(typeSet, newInstance.getType().getJClass());
+            } else if (stmt instanceof AssignLiteral assign &&
+                    assign.getRValue() instanceof StringLiteral) {
+                addType(typeSet, hierarchy.getJREClass(ClassNames.STRING));
+            } else if (stmt instanceof StoreField || stmt instanceof LoadField) {
+                JField field = ((FieldStmt<?, ?>) stmt).getFieldRef().resolveNullable();
+                if (field != null && field.getType() instanceof ClassType type) {
+                    TypeSet fieldTypeSet = getTypeSetOf(field);
+                    if (stmt instanceof StoreField) {
+                        addFlow(typeSet, fieldTypeSet, type.getJClass());
+                    } else {
+                        addFlow(fieldTypeSet, typeSet, type.getJClass());
+                    }
+                }
+            } else if (stmt instanceof StoreArray) {
+                addFlow(typeSet, getArrayTypeSet(), object);
+            } else if (stmt instanceof LoadArray) {
+                addFlow(getArrayTypeSet(), typeSet, object);
+            } else if (stmt instanceof Invoke callSite) {
+                CallKind kind = CallGraphs.getCallKind(callSite);
+                if (kind == CallKind.VIRTUAL || kind == CallKind.INTERFACE) {
+                    typeSet.virtualCallSites.add(callSite);
+                    // dispatching may add classes to this type set,
+                    // e.g., via the return flow of a callee in XTA,
+                    // and such classes are dispatched by propagate()
+                    List.copyOf(typeSet.types).forEach(type ->
+                            dispatch(callSite, type));
+                } else {
+                    cha.resolve(callSite).forEach(callee ->
+                            addCallEdge(callSite, callee));
+                }
+            }
+        }
+    }
+
+    /**
+     * Propagates the new classes of given type set to the virtual call
+     * sites and the successors of the type set.
+     */
+    private void propagate(TypeSet typeSet) {
+        List<JClass> delta = typeSet.delta;
+        typeSet.delta = new ArrayList<>();
+        for (JClass type : delta) {
+            // the list grows if the call graph reaches the container
+            // of the type set while dispatching, thus it is indexed
+            for (int i = 0; i < typeSet.virtualCallSites.size(); ++i) {
+                dispatch(typeSet.virtualCallSites.get(i), type);
+            }
+            for (Flow flow : typeSet.flows.values()) {
+                if (flow.accepts(type)) {
+                    addType(flow.target, type);
+                }
+            }
+        }
+    }
+
+    private void dispatch(Invoke callSite, JClass type) {
+        MethodRef methodRef = callSite.getMethodRef();
+        if (hierarchy.isSubclass(methodRef.getDeclaringClass(), type)) {
+            JMethod callee = hierarchy.dispatch(type, methodRef.getSubsignature());
+            if (callee != null) {
+                addCallEdge(callSite, callee);
+            }
+        }
+    }
+
+    private void addCallEdge(Invoke callSite, JMethod callee) {
+        if (callGraph.addEdge(new Edge<>(
+                CallGraphs.getCallKind(callSite), callSite, callee))) {
+            methodWorkList.add(callee);
+            TypeSet callerTypeSet = getTypeSetOf(callSite.getContainer());
+            TypeSet calleeTypeSet = getTypeSetOf(callee);
+            // arguments (and the receiver object) flow to the callee
+            if (!callee.isStatic()) {
+                addFlow(callerTypeSet, calleeTypeSet, callee.getDeclaringClass());
+            }
+            for (Type paramType : callee.getParamTypes()) {
+                if (paramType instanceof ClassType type) {
+                    addFlow(callerTypeSet, calleeTypeSet, type.getJClass());
+                }
+            }
+            // return values flow back to the caller
+            if (callee.getReturnType() instanceof ClassType type) {
+                addFlow(calleeTypeSet, callerTypeSet, type.getJClass());
+            }
+        }
+    }
+
+    /**
+     * Adds a flow of the subclasses of given bound from source to target,
+     * and propagates such classes which are already in source.
+     */
+    private void addFlow(TypeSet source, TypeSet target, JClass bound) {
+        if (source == target || bound == null) {
+            return;
+        }
+        Flow flow = source.flows.computeIfAbsent(target, Flow::new);
+        if (flow.bounds.add(bound)) {
+            source.types.forEach(type -> {
+                if (hierarchy.isSubclass(bound, type)) {
+                    addType(target, type);
+                }
+            });
+        }
+    }
+
+    private void addType(TypeSet typeSet, JClass type) {
+        if (type != null && typeSet.types.add(type)) {
+            typeSet.delta.add(type);
+            typeWorkList.add(typeSet);
+        }
+    }
+
+    /**
+     * Set of instantiated classes.
+     */
+    protected static class TypeSet {
+
+        private final Set<JClass> types = Sets.newHybridSet();
+
+        /**
+         * Classes which have been added to this set but not propagated.
+         */
+        private List<JClass> delta = new ArrayList<>();
+
+        /**
+         * Virtual call sites dispatched on the classes in this set.
+         */
+        private final List<Invoke> virtualCallSites = new ArrayList<>();
+
+        /**
+         * Map from target type set to the flow into it.
+         */
+        private final Map<TypeSet, Flow> flows = Maps.newHybridMap();
+    }
+
+    /**
+     * Flow of the subclasses of the bounds into the target type set.
+     */
+    private class Flow {
+
+        private final TypeSet target;
+
+        private final Set<JClass> bounds = Sets.newHybridSet();
+
+        private Flow(TypeSet target) {
+            this.target = target;
+        }
+
+        private boolean accepts(JClass type) {
+            for (JClass bound : bounds) {
+                if (hierarchy.isSubclass(bound, type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
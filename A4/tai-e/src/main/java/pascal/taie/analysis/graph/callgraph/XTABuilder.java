@@ -0,0 +1,61 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+
+/**
+ * Implementation of the XTA algorithm, which keeps a set of instantiated
+ * classes for each method and each field, and dispatches the virtual
+ * calls in a method only on the classes which may flow into the method,
+ * i.e., the classes instantiated in the method or passed to it via
+ * arguments, return values and fields. Arrays share a single type set.
+ */
+class XTABuilder extends TypePropagationBuilder {
+
+    private final Map<JMethod, TypeSet> methodTypeSets = Maps.newMap();
+
+    private final Map<JField, TypeSet> fieldTypeSets = Maps.newMap();
+
+    private final TypeSet arrayTypeSet = new TypeSet();
+
+    @Override
+    protected TypeSet getTypeSetOf(JMethod method) {
+        return methodTypeSets.computeIfAbsent(method, m -> new TypeSet());
+    }
+
+    @Override
+    protected TypeSet getTypeSetOf(JField field) {
+        return fieldTypeSets.computeIfAbsent(field, f -> new TypeSet());
+    }
+
+    @Override
+    protected TypeSet getArrayTypeSet() {
+        return arrayTypeSet;
+    }
+}
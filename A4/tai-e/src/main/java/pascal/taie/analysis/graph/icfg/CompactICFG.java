@@ -0,0 +1,409 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.Views;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Frozen copy of an {@link ICFG} in compressed sparse row (CSR) form.
+ * <p>
+ * The nodes are numbered globally, and the {@link ICFGEdge} objects of the
+ * given ICFG are shared in an array sorted by their sources, together with
+ * a byte tag of their kinds. The in-edges of each node are stored as
+ * indexes into this array. Thus, iterating the edges of a node neither
+ * allocates edge objects nor hashes, and the edges of a node are adjacent
+ * in memory.
+ * <p>
+ * The saving comes from the adjacency structures, not from the edges:
+ * the edge objects are the same as in the given ICFG. With compressed
+ * oops, {@link DefaultICFG} keeps, for each node, an entry in each of its
+ * two in/out-edge maps and in its node-to-CFG map, and two edge sets,
+ * i.e., roughly 250-350 bytes per node before counting the edges.
+ * This class keeps one entry in the node-to-number map (including the
+ * boxed number) and 17 bytes in arrays, i.e., roughly 70 bytes per node,
+ * and 9 bytes per edge (reference, kind and in-edge index), which is
+ * about what the two array-based edge sets of small nodes spend on an
+ * edge. Hence, the adjacency structures take about a quarter of the
+ * memory, or less for nodes with many edges, whose edge sets become
+ * hash sets.
+ * <p>
+ * The given ICFG should be released after the copy is created, so that
+ * its adjacency structures can be reclaimed.
+ *
+ * @param <Method> type of methods
+ * @param <Node>   type of nodes
+ */
+public class CompactICFG<Method, Node> implements ICFG<Method, Node> {
+
+    // kinds of edges
+    private static final byte NORMAL = 0;
+
+    private static final byte CALL_TO_RETURN = 1;
+
+    private static final byte CALL = 2;
+
+    private static final byte RETURN = 3;
+
+    private final List<Method> entryMethods;
+
+    /**
+     * Nodes indexed by their numbers.
+     */
+    private final Object[] nodes;
+
+    private final Map<Node, Integer> nodeIds;
+
+    /**
+     * Methods indexed by their numbers.
+     */
+    private final Object[] methods;
+
+    private final Map<Method, Integer> methodIds;
+
+    /**
+     * Map from node number to number of its containing method.
+     */
+    private final int[] containingMethods;
+
+    /**
+     * Numbers of the entry/exit nodes, indexed by method numbers.
+     */
+    private final int[] entries;
+
+    private final int[] exits;
+
+    private final BitSet callSites;
+
+    /**
+     * The out-edges of node i are the edges from outOffsets[i]
+     * (inclusive) to outOffsets[i + 1] (exclusive).
+     */
+    private final int[] outOffsets;
+
+    private final byte[] kinds;
+
+    /**
+     * Edge objects indexed by the edge numbers.
+     */
+    private final Object[] edges;
+
+    /**
+     * The in-edges of node i are the edges indexed by inEdges[j]
+     * for j from inOffsets[i] (inclusive) to inOffsets[i + 1] (exclusive).
+     */
+    private final int[] inOffsets;
+
+    private final int[] inEdges;
+
+    public CompactICFG(ICFG<Method, Node> icfg) {
+        entryMethods = icfg.entryMethods().toList();
+        int nodeCount = icfg.getNumberOfNodes();
+        nodes = new Object[nodeCount];
+        nodeIds = Maps.newMap(nodeCount);
+        methodIds = Maps.newMap();
+        containingMethods = new int[nodeCount];
+        callSites = new BitSet(nodeCount);
+        List<Method> methodList = new ArrayList<>();
+        int edgeCount = 0;
+        for (Node node : icfg) {
+            int id = nodeIds.size();
+            nodes[id] = node;
+            nodeIds.put(node, id);
+            Method method = icfg.getContainingMethodOf(node);
+            Integer methodId = methodIds.get(method);
+            if (methodId == null) {
+                methodId = methodList.size();
+                methodList.add(method);
+                methodIds.put(method, methodId);
+            }
+            containingMethods[id] = methodId;
+            if (icfg.isCallSite(node)) {
+                callSites.set(id);
+            }
+            edgeCount += icfg.getOutEdgesOf(node).size();
+        }
+        methods = methodList.toArray();
+        entries = new int[methods.length];
+        exits = new int[methods.length];
+        for (int i = 0; i < methods.length; ++i) {
+            entries[i] = nodeIds.get(icfg.getEntryOf(methodList.get(i)));
+            exits[i] = nodeIds.get(icfg.getExitOf(methodList.get(i)));
+        }
+        // out-edges
+        outOffsets = new int[nodeCount + 1];
+        int[] targets = new int[edgeCount];
+        kinds = new byte[edgeCount];
+        edges = new Object[edgeCount];
+        int[] inDegrees = new int[nodeCount];
+        int e = 0;
+        for (int i = 0; i < nodeCount; ++i) {
+            outOffsets[i] = e;
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(getNode(i))) {
+                targets[e] = nodeIds.get(edge.getTarget());
+                ++inDegrees[targets[e]];
+                edges[e] = edge;
+                if (edge instanceof NormalEdge) {
+                    kinds[e] = NORMAL;
+                } else if (edge instanceof CallToReturnEdge) {
+                    kinds[e] = CALL_TO_RETURN;
+                } else if (edge instanceof CallEdge) {
+                    kinds[e] = CALL;
+                } else {
+                    kinds[e] = RETURN;
+                }
+                ++e;
+            }
+        }
+        outOffsets[nodeCount] = e;
+        // in-edges
+        inOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; ++i) {
+            inOffsets[i + 1] = inOffsets[i] + inDegrees[i];
+        }
+        inEdges = new int[edgeCount];
+        int[] next = Arrays.copyOf(inOffsets, nodeCount);
+        for (int i = 0; i < edgeCount; ++i) {
+            inEdges[next[targets[i]]++] = i;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node getNode(int id) {
+        return (Node) nodes[id];
+    }
+
+    private int getId(Node node) {
+        Integer id = nodeIds.get(node);
+        if (id == null) {
+            throw new IllegalArgumentException(node + " is not in this ICFG");
+        }
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ICFGEdge<Node> getEdge(int i) {
+        return (ICFGEdge<Node>) edges[i];
+    }
+
+    @Override
+    public Stream<Method> entryMethods() {
+        return entryMethods.stream();
+    }
+
+    @Override
+    public Set<ICFGEdge<Node>> getInEdgesOf(Node node) {
+        int id = getId(node);
+        return new EdgeSet(inEdges, inOffsets[id], inOffsets[id + 1]);
+    }
+
+    @Override
+    public Set<ICFGEdge<Node>> getOutEdgesOf(Node node) {
+        int id = getId(node);
+        return new EdgeSet(null, outOffsets[id], outOffsets[id + 1]);
+    }
+
+    @Override
+    public Set<Method> getCalleesOf(Node callSite) {
+        int id = getId(callSite);
+        Set<Method> callees = Sets.newHybridSet();
+        for (int i = outOffsets[id]; i < outOffsets[id + 1]; ++i) {
+            if (kinds[i] == CALL) {
+                callees.add(getContainingMethodOf(getEdge(i).getTarget()));
+            }
+        }
+        return callees;
+    }
+
+    @Override
+    public Set<Node> getReturnSitesOf(Node callSite) {
+        int id = getId(callSite);
+        Set<Node> retSites = Sets.newHybridSet();
+        for (int i = outOffsets[id]; i < outOffsets[id + 1]; ++i) {
+            if (kinds[i] == CALL_TO_RETURN) {
+                retSites.add(getEdge(i).getTarget());
+            }
+        }
+        return retSites;
+    }
+
+    @Override
+    public Node getEntryOf(Method method) {
+        return getNode(entries[methodIds.get(method)]);
+    }
+
+    @Override
+    public Node getExitOf(Method method) {
+        return getNode(exits[methodIds.get(method)]);
+    }
+
+    @Override
+    public Set<Node> getCallersOf(Method method) {
+        int entry = entries[methodIds.get(method)];
+        Set<Node> callers = Sets.newHybridSet();
+        for (int i = inOffsets[entry]; i < inOffsets[entry + 1]; ++i) {
+            int edge = inEdges[i];
+            if (kinds[edge] == CALL) {
+                callers.add(getEdge(edge).getSource());
+            }
+        }
+        return callers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Method getContainingMethodOf(Node node) {
+        return (Method) methods[containingMethods[getId(node)]];
+    }
+
+    @Override
+    public boolean isCallSite(Node node) {
+        return callSites.get(getId(node));
+    }
+
+    @Override
+    public boolean hasNode(Node node) {
+        return nodeIds.containsKey(node);
+    }
+
+    @Override
+    public boolean hasEdge(Node source, Node target) {
+        int id = getId(source);
+        for (int i = outOffsets[id]; i < outOffsets[id + 1]; ++i) {
+            if (getEdge(i).getTarget().equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Node> getPredsOf(Node node) {
+        return Views.toMappedSet(getInEdgesOf(node), ICFGEdge::getSource);
+    }
+
+    @Override
+    public Set<Node> getSuccsOf(Node node) {
+        return Views.toMappedSet(getOutEdgesOf(node), ICFGEdge::getTarget);
+    }
+
+    @Override
+    public Set<Node> getNodes() {
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return nodeIds.containsKey(o);
+            }
+
+            @Override
+            public Iterator<Node> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < nodes.length;
+                    }
+
+                    @Override
+                    public Node next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return getNode(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+        };
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return nodes.length;
+    }
+
+    /**
+     * Unmodifiable set of the edges in a range of the edge arrays.
+     */
+    private class EdgeSet extends AbstractSet<ICFGEdge<Node>> {
+
+        /**
+         * Indexes of the edges, or null if the range indexes
+         * the edge arrays directly.
+         */
+        private final int[] indexes;
+
+        private final int from;
+
+        private final int to;
+
+        private EdgeSet(int[] indexes, int from, int to) {
+            this.indexes = indexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<ICFGEdge<Node>> iterator() {
+            return new Iterator<>() {
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @Override
+                public ICFGEdge<Node> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int i = next++;
+                    return getEdge(indexes == null ? i : indexes[i]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.Views;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * ICFG which is constructed on demand.
+ * <p>
+ * The CFG of a method is obtained (and built if it has not been built
+ * by analysis {@link CFGBuilder#ID}) the first time its entry or exit
+ * is requested, e.g., when a call edge to the method is created.
+ * The edges of a method, including the call and return edges of its call
+ * sites, are built the first time the edges of any of its nodes are
+ * requested, i.e., when the solver reaches the method. Thus, the edges
+ * of the methods which are never reached by the solver are never built.
+ * <p>
+ * The edges of a node only include the call and return edges from/to
+ * the methods which have been built, which suffices for the solvers
+ * that process the nodes as they are reached from the entry methods.
+ * Note that {@link #getNodes()} (and iterating over this ICFG) builds
+ * all reachable methods in the call graph.
+ * <p>
+ * If this ICFG is created without a call graph, the call graph grows on
+ * the fly: the callees of a call site are resolved by the given resolver,
+ * and its call and return edges are built, only when {@link #expand(Stmt)}
+ * is invoked on the call site, e.g., when the solver first reaches it.
+ * In this case, {@link #getNodes()} only returns the nodes of the methods
+ * which have been reached via the expanded call sites.
+ */
+public class LazyICFG implements ICFG<JMethod, Stmt> {
+
+    /**
+     * The call graph, or null if the call graph grows on the fly.
+     */
+    private final CallGraph<Stmt, JMethod> callGraph;
+
+    private final List<JMethod> entryMethods;
+
+    /**
+     * Resolves the callees of call sites if the call graph grows on the fly.
+     */
+    private final Function<Invoke, Set<JMethod>> resolver;
+
+    /**
+     * Call sites whose callees have been resolved by {@link #resolver}.
+     */
+    private final Set<Stmt> expandedCallSites = Sets.newSet();
+
+    private final MultiMap<Stmt, JMethod> callees = Maps.newMultiMap();
+
+    private final MultiMap<JMethod, Stmt> callers = Maps.newMultiMap();
+
+    private final MultiMap<Stmt, ICFGEdge<Stmt>> inEdges = Maps.newMultiMap();
+
+    private final MultiMap<Stmt, ICFGEdge<Stmt>> outEdges = Maps.newMultiMap();
+
+    private final Map<JMethod, CFG<Stmt>> cfgs = Maps.newMap();
+
+    private final Map<Stmt, CFG<Stmt>> stmtToCFG = Maps.newMap();
+
+    /**
+     * Methods whose edges have been built.
+     */
+    private final Set<JMethod> builtMethods = Sets.newSet();
+
+    /**
+     * Analyses for building absent CFGs, created on demand.
+     */
+    private ThrowAnalysis throwAnalysis;
+
+    private CFGBuilder cfgBuilder;
+
+    private int builtCFGs = 0;
+
+    private int edgeCount = 0;
+
+    public LazyICFG(CallGraph<Stmt, JMethod> callGraph) {
+        this.callGraph = callGraph;
+        this.entryMethods = callGraph.entryMethods().toList();
+        this.resolver = null;
+    }
+
+    /**
+     * Creates an ICFG whose call graph grows on the fly.
+     *
+     * @param entryMethods the entry methods of the call graph
+     * @param resolver     resolves the callees of a call site
+     */
+    public LazyICFG(List<JMethod> entryMethods,
+                    Function<Invoke, Set<JMethod>> resolver) {
+        this.callGraph = null;
+        this.entryMethods = List.copyOf(entryMethods);
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Stream<JMethod> entryMethods() {
+        return entryMethods.stream();
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getInEdgesOf(Stmt stmt) {
+        build(getContainingMethodOf(stmt));
+        return Collections.unmodifiableSet(inEdges.get(stmt));
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getOutEdgesOf(Stmt stmt) {
+        build(getContainingMethodOf(stmt));
+        return Collections.unmodifiableSet(outEdges.get(stmt));
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOf(Stmt callSite) {
+        return callGraph != null ? callGraph.getCalleesOf(callSite) :
+                Collections.unmodifiableSet(callees.get(callSite));
+    }
+
+    @Override
+    public Set<Stmt> getReturnSitesOf(Stmt callSite) {
+        return stmtToCFG.get(callSite).getSuccsOf(callSite);
+    }
+
+    @Override
+    public Stmt getEntryOf(JMethod method) {
+        return getCFGOf(method).getEntry();
+    }
+
+    @Override
+    public Stmt getExitOf(JMethod method) {
+        return getCFGOf(method).getExit();
+    }
+
+    @Override
+    public Set<Stmt> getCallersOf(JMethod method) {
+        return callGraph != null ? callGraph.getCallersOf(method) :
+                Collections.unmodifiableSet(callers.get(method));
+    }
+
+    @Override
+    public JMethod getContainingMethodOf(Stmt stmt) {
+        return stmtToCFG.get(stmt).getMethod();
+    }
+
+    @Override
+    public boolean isCallSite(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public boolean hasNode(Stmt stmt) {
+        return stmtToCFG.containsKey(stmt);
+    }
+
+    @Override
+    public boolean hasEdge(Stmt source, Stmt target) {
+        return getOutEdgesOf(source)
+                .stream()
+                .anyMatch(edge -> edge.getTarget().equals(target));
+    }
+
+    @Override
+    public Set<Stmt> getPredsOf(Stmt stmt) {
+        return Views.toMappedSet(getInEdgesOf(stmt), ICFGEdge::getSource);
+    }
+
+    @Override
+    public Set<Stmt> getSuccsOf(Stmt stmt) {
+        return Views.toMappedSet(getOutEdgesOf(stmt), ICFGEdge::getTarget);
+    }
+
+    @Override
+    public Set<Stmt> getNodes() {
+        if (callGraph != null) {
+            callGraph.reachableMethods().forEach(this::build);
+        } else {
+            // building a method does not reach new methods,
+            // as its call sites are expanded separately
+            List.copyOf(cfgs.keySet()).forEach(this::build);
+        }
+        return Collections.unmodifiableSet(stmtToCFG.keySet());
+    }
+
+    /**
+     * Resolves the callees of given call site, and builds its call and
+     * return edges, if they have not been built. This method only takes
+     * effect if the call graph grows on the fly.
+     */
+    public void expand(Stmt callSite) {
+        if (resolver != null && expandedCallSites.add(callSite)) {
+            build(getContainingMethodOf(callSite));
+            for (JMethod callee : resolver.apply((Invoke) callSite)) {
+                if (callees.put(callSite, callee)) {
+                    callers.put(callee, callSite);
+                    addCallEdges(callSite, callee);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return construction statistics of this ICFG.
+     */
+    public String getStatistics() {
+        String methods = callGraph != null ?
+                String.format("built %d/%d reachable methods",
+                        builtMethods.size(), callGraph.getNumberOfMethods()) :
+                String.format("built %d methods, expanded %d call sites",
+                        builtMethods.size(), expandedCallSites.size());
+        return String.format("%s (%d CFGs constructed on demand), %d nodes, %d edges",
+                methods, builtCFGs, stmtToCFG.size(), edgeCount);
+    }
+
+    private CFG<Stmt> getCFGOf(JMethod method) {
+        CFG<Stmt> cfg = cfgs.get(method);
+        if (cfg == null) {
+            IR ir = method.getIR();
+            cfg = ir.getResult(CFGBuilder.ID, () -> buildCFG(ir));
+            cfgs.put(method, cfg);
+            for (Stmt stmt : cfg) {
+                stmtToCFG.put(stmt, cfg);
+            }
+        }
+        return cfg;
+    }
+
+    private CFG<Stmt> buildCFG(IR ir) {
+        if (cfgBuilder == null) {
+            throwAnalysis = new ThrowAnalysis(new AnalysisConfig(ThrowAnalysis.ID,
+                    "exception", "explicit", "algorithm", "intra"));
+            cfgBuilder = new CFGBuilder(new AnalysisConfig(CFGBuilder.ID,
+                    "exception", "explicit", "dump", false));
+        }
+        ir.getResult(ThrowAnalysis.ID, () -> throwAnalysis.analyze(ir));
+        ++builtCFGs;
+        return cfgBuilder.analyze(ir);
+    }
+
+    /**
+     * Builds the intra-procedural edges of given method, and the call
+     * and return edges of its call sites, if they have not been built.
+     * If the call graph grows on the fly, the call and return edges are
+     * built by {@link #expand(Stmt)} instead.
+     */
+    private void build(JMethod method) {
+        if (!builtMethods.add(method)) {
+            return;
+        }
+        CFG<Stmt> cfg = getCFGOf(method);
+        for (Stmt stmt : cfg) {
+            cfg.getOutEdgesOf(stmt).forEach(edge -> addEdge(isCallSite(stmt) ?
+                    new CallToReturnEdge<>(edge) : new NormalEdge<>(edge)));
+            if (callGraph != null && isCallSite(stmt)) {
+                for (JMethod callee : getCalleesOf(stmt)) {
+                    addCallEdges(stmt, callee);
+                }
+            }
+        }
+    }
+
+    private void addCallEdges(Stmt callSite, JMethod callee) {
+        CFG<Stmt> calleeCFG = getCFGOf(callee);
+        addEdge(new CallEdge<>(callSite, calleeCFG.getEntry(), callee));
+        Stmt exit = calleeCFG.getExit();
+        Set<Var> retVars = Sets.newHybridSet();
+        Set<ClassType> exceptions = Sets.newHybridSet();
+        // the exit of CFG is mock, thus we collect return and exception
+        // information from its predecessors, i.e., the real return and
+        // excepting Stmts
+        calleeCFG.getInEdgesOf(exit).forEach(retEdge -> {
+            if (retEdge.getKind() == Edge.Kind.RETURN) {
+                Var retVar = ((Return) retEdge.getSource()).getValue();
+                if (retVar != null) {
+                    retVars.add(retVar);
+                }
+            }
+            if (retEdge.isExceptional()) {
+                exceptions.addAll(retEdge.getExceptions());
+            }
+        });
+        getReturnSitesOf(callSite).forEach(retSite -> addEdge(
+                new ReturnEdge<>(exit, retSite, callSite, retVars, exceptions)));
+    }
+
+    private void addEdge(ICFGEdge<Stmt> edge) {
+        if (outEdges.put(edge.getSource(), edge)) {
+            inEdges.put(edge.getTarget(), edge);
+            ++edgeCount;
+        }
+    }
+}
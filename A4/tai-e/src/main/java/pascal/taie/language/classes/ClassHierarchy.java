@@ -50,6 +50,22 @@ public interface ClassHierarchy {
      */
     void addClass(JClass jclass);
 
+    /**
+     * Removes a JClass from class hierarchy. The classes which extend
+     * or implement the removed class are kept in the hierarchy, but they
+     * are no longer subtypes of the removed class and its supertypes,
+     * and no longer inherit methods from them.
+     */
+    void removeClass(JClass jclass);
+
+    /**
+     * Replaces the content of a JClass in class hierarchy with the one
+     * given by builder, e.g., after the class has been changed.
+     * The class is rebuilt in place, so that the other classes and
+     * methods which refer to it remain valid.
+     */
+    void replaceClass(JClass jclass, JClassBuilder builder);
+
     Stream<JClass> allClasses();
 
     Stream<JClass> applicationClasses();
@@ -75,6 +91,19 @@ public interface ClassHierarchy {
      */
     Collection<JClass> getDirectSubclassesOf(JClass jclass);
 
+    /**
+     * @return true if subclass is superclass itself, or a (transitive)
+     * subclass, subinterface or implementor of superclass, otherwise false.
+     */
+    boolean isSubclass(JClass superclass, JClass subclass);
+
+    /**
+     * @return given class and all its (transitive) subclasses,
+     * subinterfaces and implementors. The returned collection
+     * must not be modified.
+     */
+    Collection<JClass> getAllSubclassesOf(JClass jclass);
+
     /**
      * Obtains a JRE class by it name.
      *
@@ -87,6 +116,17 @@ public interface ClassHierarchy {
 
     @Nullable JMethod resolveMethod(MethodRef methodRef);
 
+    /**
+     * Dispatches a method on given receiver class, i.e., looks up the
+     * non-abstract method of given subsignature in the receiver class and
+     * its superclasses, and then the default methods of its superinterfaces.
+     *
+     * @return the dispatched method, or null if no non-abstract method
+     * can be found.
+     */
+    @Nullable
+    JMethod dispatch(JClass receiverClass, Subsignature subsignature);
+
     /**
      * Obtains a method declared in a JRE class by its signature.
      *
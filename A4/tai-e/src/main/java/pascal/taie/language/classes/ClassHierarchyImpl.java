@@ -28,12 +28,17 @@ import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.util.AnalysisException;
 
 import javax.annotation.Nullable;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static pascal.taie.util.collection.Maps.newConcurrentMap;
 import static pascal.taie.util.collection.Maps.newMap;
 import static pascal.taie.util.collection.Maps.newSmallMap;
 import static pascal.taie.util.collection.Sets.newHybridSet;
@@ -65,6 +70,42 @@ public class ClassHierarchyImpl implements ClassHierarchy {
      */
     private final Map<JClass, Set<JClass>> directSubclasses = newMap();
 
+    /**
+     * Map from subsignature to its ID, which indexes dispatch tables.
+     */
+    private final ConcurrentMap<Subsignature, Integer> subsignatureIds =
+            newConcurrentMap();
+
+    private final AtomicInteger subsignatureCounter = new AtomicInteger();
+
+    /**
+     * Map from each class to its dispatch table (vtable),
+     * built on first dispatch on the class.
+     */
+    private final ConcurrentMap<JClass, DispatchTable> vtables =
+            newConcurrentMap();
+
+    /**
+     * Map from each interface to the table of the non-abstract methods
+     * declared by it and its superinterfaces (itable), which contributes
+     * default methods to the vtables of the classes implementing it.
+     */
+    private final ConcurrentMap<JClass, DispatchTable> itables =
+            newConcurrentMap();
+
+    /**
+     * Index of the transitive subtype relation, built on the first query
+     * after the last class has been added, and discarded by
+     * {@link #addClass(JClass)}.
+     */
+    private volatile SubtypeIndex subtypeIndex;
+
+    /**
+     * Classes which have been removed from this hierarchy. They are still
+     * held by their class loaders, thus they are filtered out of queries.
+     */
+    private final Set<JClass> removedClasses = newHybridSet();
+
     @Override
     public void setDefaultClassLoader(JClassLoader loader) {
         this.defaultLoader = loader;
@@ -97,6 +138,37 @@ public class ClassHierarchyImpl implements ClassHierarchy {
 
     @Override
     public void addClass(JClass jclass) {
+        subtypeIndex = null;
+        if (removedClasses.remove(jclass)) {
+            // the subtypes which were kept may inherit from it again
+            invalidateDispatchTables(jclass);
+        }
+        link(jclass);
+    }
+
+    @Override
+    public void removeClass(JClass jclass) {
+        invalidateDispatchTables(jclass);
+        unlink(jclass);
+        removedClasses.add(jclass);
+        subtypeIndex = null;
+    }
+
+    @Override
+    public void replaceClass(JClass jclass, JClassBuilder builder) {
+        // the tables of the subtypes are invalidated before the class
+        // changes its supertypes, and thus its position in the hierarchy
+        invalidateDispatchTables(jclass);
+        unlink(jclass);
+        jclass.build(builder);
+        link(jclass);
+        subtypeIndex = null;
+    }
+
+    /**
+     * Adds the edges from the direct supertypes of given class to it.
+     */
+    private void link(JClass jclass) {
         // Add direct subinterface
         if (jclass.isInterface()) {
             jclass.getInterfaces().forEach(iface ->
@@ -119,13 +191,80 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         }
     }
 
+    /**
+     * Removes the edges from the direct supertypes of given class to it.
+     * The edges to its subtypes are kept, as they still refer to it.
+     */
+    private void unlink(JClass jclass) {
+        for (JClass iface : jclass.getInterfaces()) {
+            removeEdge(jclass.isInterface() ?
+                    directSubinterfaces : directImplementors, iface, jclass);
+        }
+        if (!jclass.isInterface() && jclass.getSuperClass() != null) {
+            removeEdge(directSubclasses, jclass.getSuperClass(), jclass);
+        }
+    }
+
+    private static void removeEdge(Map<JClass, Set<JClass>> edges,
+                                   JClass supertype, JClass subtype) {
+        Set<JClass> subtypes = edges.get(supertype);
+        if (subtypes != null) {
+            subtypes.remove(subtype);
+        }
+    }
+
+    /**
+     * Discards the dispatch tables which are built from given class,
+     * i.e., those of the class and all its subtypes. The subtypes are
+     * found via the direct subtype edges, as the class may not be
+     * in the subtype index, e.g., when it is added back after removal.
+     */
+    private void invalidateDispatchTables(JClass jclass) {
+        Set<JClass> visited = newHybridSet();
+        Deque<JClass> stack = new ArrayDeque<>();
+        stack.push(jclass);
+        while (!stack.isEmpty()) {
+            JClass c = stack.pop();
+            if (visited.add(c)) {
+                vtables.remove(c);
+                itables.remove(c);
+                getDirectSubclassesOf(c).forEach(stack::push);
+                getDirectSubinterfacesOf(c).forEach(stack::push);
+                getDirectImplementorsOf(c).forEach(stack::push);
+            }
+        }
+    }
+
+    /**
+     * @return the superclass of given class, or null if it has been
+     * removed from this hierarchy.
+     */
+    private @Nullable JClass getSuperClassOf(JClass jclass) {
+        JClass superClass = jclass.getSuperClass();
+        return superClass != null && removedClasses.contains(superClass) ?
+                null : superClass;
+    }
+
+    /**
+     * @return the direct superinterfaces of given class which have
+     * not been removed from this hierarchy.
+     */
+    private Collection<JClass> getInterfacesOf(JClass jclass) {
+        Collection<JClass> interfaces = jclass.getInterfaces();
+        return removedClasses.isEmpty() ? interfaces : interfaces.stream()
+                .filter(iface -> !removedClasses.contains(iface))
+                .toList();
+    }
+
     @Override
     public Stream<JClass> allClasses() {
-        return loaders.values()
+        Stream<JClass> classes = loaders.values()
                 .stream()
                 .distinct()
                 .map(JClassLoader::getLoadedClasses)
                 .flatMap(Collection::stream);
+        return removedClasses.isEmpty() ? classes :
+                classes.filter(c -> !removedClasses.contains(c));
     }
 
     @Override
@@ -136,7 +275,8 @@ public class ClassHierarchyImpl implements ClassHierarchy {
     @Override
     public @Nullable
     JClass getClass(JClassLoader loader, String name) {
-        return loader.loadClass(name);
+        JClass jclass = loader.loadClass(name);
+        return jclass != null && removedClasses.contains(jclass) ? null : jclass;
     }
 
     @Override
@@ -160,6 +300,29 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return directSubclasses.getOrDefault(jclass, Set.of());
     }
 
+    @Override
+    public boolean isSubclass(JClass superclass, JClass subclass) {
+        return getSubtypeIndex().isSubclass(superclass, subclass);
+    }
+
+    @Override
+    public Collection<JClass> getAllSubclassesOf(JClass jclass) {
+        return getSubtypeIndex().getAllSubclassesOf(jclass);
+    }
+
+    private SubtypeIndex getSubtypeIndex() {
+        SubtypeIndex index = subtypeIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = subtypeIndex;
+                if (index == null) {
+                    index = subtypeIndex = new SubtypeIndex(this);
+                }
+            }
+        }
+        return index;
+    }
+
     private static boolean checkCHA = false;
 
     public static void setCheckCHA(boolean checkCHA) {
@@ -195,14 +358,14 @@ public class ClassHierarchyImpl implements ClassHierarchy {
 
     private JMethod lookupMethod(JClass jclass, Subsignature subsignature,
                                  boolean allowAbstract) {
-        for (JClass c = jclass; c != null; c = c.getSuperClass()) {
+        for (JClass c = jclass; c != null; c = getSuperClassOf(c)) {
             JMethod method = c.getDeclaredMethod(subsignature);
             if (method != null && (allowAbstract || !method.isAbstract())) {
                 return method;
             }
         }
-        for (JClass c = jclass; c != null; c = c.getSuperClass()) {
-            for (JClass iface : c.getInterfaces()) {
+        for (JClass c = jclass; c != null; c = getSuperClassOf(c)) {
+            for (JClass iface : getInterfacesOf(c)) {
                 JMethod method = lookupMethodFromSuperinterfaces(
                         iface, subsignature, allowAbstract);
                 if (method != null) {
@@ -219,7 +382,7 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         if (method != null && (allowAbstract || !method.isAbstract())) {
             return method;
         }
-        for (JClass iface : jclass.getInterfaces()) {
+        for (JClass iface : getInterfacesOf(jclass)) {
             method = lookupMethodFromSuperinterfaces(
                     iface, subsignature, allowAbstract);
             if (method != null) {
@@ -229,6 +392,90 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return null;
     }
 
+    @Override
+    public @Nullable
+    JMethod dispatch(JClass receiverClass, Subsignature subsignature) {
+        if (removedClasses.contains(receiverClass)) {
+            return null;
+        }
+        DispatchTable vtable = getVTable(receiverClass);
+        // all subsignatures in the vtable have been given IDs
+        // when the vtable was built
+        Integer id = subsignatureIds.get(subsignature);
+        return id != null ? vtable.get(id) : null;
+    }
+
+    private int getId(Subsignature subsignature) {
+        return subsignatureIds.computeIfAbsent(subsignature,
+                s -> subsignatureCounter.getAndIncrement());
+    }
+
+    /**
+     * The vtable of a class follows the order of {@link #lookupMethod}:
+     * the non-abstract methods declared in the class and its superclasses
+     * come first, then the default methods of the superinterfaces of the
+     * class, and then those of the superinterfaces of its superclasses.
+     * The tables are built without computeIfAbsent(), as building the table
+     * of a class builds the tables of its supertypes. The supertypes which
+     * have been removed from this hierarchy are skipped.
+     */
+    private DispatchTable getVTable(JClass jclass) {
+        DispatchTable cached = vtables.get(jclass);
+        if (cached != null) {
+            return cached;
+        }
+        JClass superClass = getSuperClassOf(jclass);
+        DispatchTable superTable = superClass != null ? getVTable(superClass) : null;
+        DispatchTable vtable = new DispatchTable(jclass.getDeclaredMethods().size() +
+                (superTable != null ? superTable.size() : 0));
+        addDeclaredMethods(jclass, vtable);
+        if (superTable != null) {
+            superTable.forEach((method, id) -> {
+                if (!method.getDeclaringClass().isInterface()) {
+                    vtable.putIfAbsent(id, method);
+                }
+            });
+        }
+        for (JClass iface : getInterfacesOf(jclass)) {
+            getITable(iface).forEach((method, id) -> vtable.putIfAbsent(id, method));
+        }
+        if (superTable != null) {
+            superTable.forEach((method, id) -> {
+                if (method.getDeclaringClass().isInterface()) {
+                    vtable.putIfAbsent(id, method);
+                }
+            });
+        }
+        DispatchTable prev = vtables.putIfAbsent(jclass, vtable);
+        return prev != null ? prev : vtable;
+    }
+
+    /**
+     * The itable of an interface follows the order of
+     * {@link #lookupMethodFromSuperinterfaces}.
+     */
+    private DispatchTable getITable(JClass iface) {
+        DispatchTable cached = itables.get(iface);
+        if (cached != null) {
+            return cached;
+        }
+        DispatchTable itable = new DispatchTable(iface.getDeclaredMethods().size());
+        addDeclaredMethods(iface, itable);
+        for (JClass superIface : getInterfacesOf(iface)) {
+            getITable(superIface).forEach((method, id) -> itable.putIfAbsent(id, method));
+        }
+        DispatchTable prev = itables.putIfAbsent(iface, itable);
+        return prev != null ? prev : itable;
+    }
+
+    private void addDeclaredMethods(JClass jclass, DispatchTable table) {
+        for (JMethod method : jclass.getDeclaredMethods()) {
+            if (!method.isAbstract()) {
+                table.putIfAbsent(getId(method.getSubsignature()), method);
+            }
+        }
+    }
+
     @Override
     public @Nullable
     JClass getJREClass(String name) {
@@ -0,0 +1,121 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.language.classes;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Dispatch table of a class, i.e., an open-addressing map from
+ * the ID of a subsignature to the non-abstract method which is
+ * dispatched for the subsignature on the class.
+ * <p>
+ * A table is filled when it is built, and is only read afterwards.
+ */
+class DispatchTable {
+
+    /**
+     * Marks a free slot in {@link #keys}.
+     */
+    private static final int FREE = -1;
+
+    private int[] keys;
+
+    private JMethod[] methods;
+
+    private int size = 0;
+
+    DispatchTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        methods = new JMethod[capacity];
+    }
+
+    /**
+     * @return the method for given subsignature ID, or null if the table
+     * does not contain the ID.
+     */
+    JMethod get(int id) {
+        int mask = keys.length - 1;
+        for (int i = hash(id) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return methods[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Associates given method with given subsignature ID,
+     * unless the table already contains the ID.
+     */
+    void putIfAbsent(int id, JMethod method) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == id) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = id;
+        methods[i] = method;
+        ++size;
+    }
+
+    void forEach(ObjIntConsumer<JMethod> action) {
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != FREE) {
+                action.accept(methods[i], keys[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        JMethod[] oldMethods = methods;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, FREE);
+        methods = new JMethod[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != FREE) {
+                putIfAbsent(oldKeys[i], oldMethods[i]);
+            }
+        }
+    }
+
+    private static int hash(int id) {
+        // IDs are dense, thus spread them over the table
+        return id * 0x9E3779B9 >>> 16 ^ id;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package pascal.taie.language.classes;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static pascal.taie.util.collection.Maps.newMap;
+
+/**
+ * Index of the subtype relation of a snapshot of a class hierarchy.
+ * <p>
+ * The (non-interface) classes are numbered by a pre-order traversal of
+ * the class tree, thus the subclasses of a class are exactly the classes
+ * whose numbers lie in the interval which starts at the number of the
+ * class and spans the size of its subtree. For each interface, the index
+ * keeps a bit set of its subinterfaces and a bit set of (the numbers of)
+ * the classes which implement it, directly or transitively.
+ */
+final class SubtypeIndex {
+
+    /**
+     * Map from class to its pre-order number.
+     */
+    private final Map<JClass, Integer> classNumbers = newMap();
+
+    /**
+     * Classes indexed by their pre-order numbers.
+     */
+    private final List<JClass> classes;
+
+    /**
+     * Sizes of the subtrees of the classes, indexed by pre-order numbers.
+     */
+    private final int[] subtreeSizes;
+
+    /**
+     * Map from interface to its number.
+     */
+    private final Map<JClass, Integer> interfaceNumbers = newMap();
+
+    /**
+     * Interfaces indexed by their numbers.
+     */
+    private final List<JClass> interfaces = new ArrayList<>();
+
+    /**
+     * Transitive subinterfaces of each interface (including itself),
+     * indexed by interface numbers.
+     */
+    private final List<BitSet> subinterfaces = new ArrayList<>();
+
+    /**
+     * Classes which implement each interface, directly or transitively,
+     * indexed by interface numbers.
+     */
+    private final List<BitSet> implementors = new ArrayList<>();
+
+    SubtypeIndex(ClassHierarchy hierarchy) {
+        List<JClass> allClasses = hierarchy.allClasses().toList();
+        Set<JClass> classSet = Set.copyOf(allClasses);
+        List<JClass> roots = new ArrayList<>();
+        for (JClass c : allClasses) {
+            if (c.isInterface()) {
+                interfaceNumbers.put(c, interfaces.size());
+                interfaces.add(c);
+            } else if (c.getSuperClass() == null ||
+                    !classSet.contains(c.getSuperClass())) {
+                // java.lang.Object, or a class whose superclass
+                // is not in the hierarchy
+                roots.add(c);
+            }
+        }
+        JClass[] order = numberClasses(hierarchy, roots);
+        classes = Collections.unmodifiableList(Arrays.asList(order));
+        subtreeSizes = new int[order.length];
+        for (int i = order.length - 1; i >= 0; --i) {
+            subtreeSizes[i] += 1;
+            Integer superNumber = classNumbers.get(order[i].getSuperClass());
+            if (superNumber != null) {
+                subtreeSizes[superNumber] += subtreeSizes[i];
+            }
+        }
+        for (int i = 0; i < interfaces.size(); ++i) {
+            subinterfaces.add(null);
+            implementors.add(null);
+        }
+        for (int i = 0; i < interfaces.size(); ++i) {
+            indexInterface(hierarchy, i);
+        }
+    }
+
+    /**
+     * Numbers the classes reachable from given roots in pre-order.
+     * The traversal is iterative, so that deep class trees
+     * do not overflow the stack.
+     *
+     * @return the classes in pre-order.
+     */
+    private JClass[] numberClasses(ClassHierarchy hierarchy, List<JClass> roots) {
+        List<JClass> order = new ArrayList<>();
+        Deque<JClass> stack = new ArrayDeque<>(roots);
+        while (!stack.isEmpty()) {
+            JClass c = stack.pop();
+            classNumbers.put(c, order.size());
+            order.add(c);
+            hierarchy.getDirectSubclassesOf(c).forEach(stack::push);
+        }
+        return order.toArray(new JClass[0]);
+    }
+
+    /**
+     * Computes the subinterfaces and implementors of the interface
+     * of given number, after those of its direct subinterfaces.
+     */
+    private void indexInterface(ClassHierarchy hierarchy, int number) {
+        if (subinterfaces.get(number) != null) {
+            return;
+        }
+        JClass iface = interfaces.get(number);
+        BitSet subs = new BitSet();
+        BitSet impls = new BitSet();
+        subs.set(number);
+        for (JClass sub : hierarchy.getDirectSubinterfacesOf(iface)) {
+            int subNumber = interfaceNumbers.get(sub);
+            indexInterface(hierarchy, subNumber);
+            subs.or(subinterfaces.get(subNumber));
+            impls.or(implementors.get(subNumber));
+        }
+        for (JClass impl : hierarchy.getDirectImplementorsOf(iface)) {
+            int first = classNumbers.get(impl);
+            impls.set(first, first + subtreeSizes[first]);
+        }
+        subinterfaces.set(number, subs);
+        implementors.set(number, impls);
+    }
+
+    /**
+     * @return true if subclass is superclass itself, or a (transitive)
+     * subclass, subinterface or implementor of superclass.
+     */
+    boolean isSubclass(JClass superclass, JClass subclass) {
+        if (superclass == subclass) {
+            return true;
+        }
+        if (!contains(superclass) || !contains(subclass)) {
+            return false;
+        }
+        if (superclass.isInterface()) {
+            int number = interfaceNumbers.get(superclass);
+            return subclass.isInterface() ?
+                    subinterfaces.get(number).get(interfaceNumbers.get(subclass)) :
+                    implementors.get(number).get(classNumbers.get(subclass));
+        } else if (subclass.isInterface()) {
+            // the superclass of an interface is java.lang.Object
+            JClass superOfInterface = subclass.getSuperClass();
+            return superOfInterface != null &&
+                    isSubclass(superclass, superOfInterface);
+        } else {
+            int first = classNumbers.get(superclass);
+            int number = classNumbers.get(subclass);
+            return first <= number && number < first + subtreeSizes[first];
+        }
+    }
+
+    /**
+     * @return the given class and all its (transitive) subclasses,
+     * subinterfaces and implementors. The result is a view
+     * of this index, which is not copied. A class which is not
+     * in the hierarchy has no subtypes but itself.
+     */
+    Collection<JClass> getAllSubclassesOf(JClass jclass) {
+        if (!contains(jclass)) {
+            return List.of(jclass);
+        } else if (jclass.isInterface()) {
+            int number = interfaceNumbers.get(jclass);
+            return new InterfaceSubtypes(subinterfaces.get(number),
+                    implementors.get(number));
+        } else {
+            int first = classNumbers.get(jclass);
+            return classes.subList(first, first + subtreeSizes[first]);
+        }
+    }
+
+    /**
+     * @return true if given class was in the hierarchy when
+     * this index was built, otherwise false.
+     */
+    private boolean contains(JClass jclass) {
+        return jclass.isInterface() ?
+                interfaceNumbers.containsKey(jclass) :
+                classNumbers.containsKey(jclass);
+    }
+
+    /**
+     * View of the subinterfaces and implementing classes of an interface.
+     */
+    private class InterfaceSubtypes extends AbstractCollection<JClass> {
+
+        private final BitSet subs;
+
+        private final BitSet impls;
+
+        private InterfaceSubtypes(BitSet subs, BitSet impls) {
+            this.subs = subs;
+            this.impls = impls;
+        }
+
+        @Override
+        public Iterator<JClass> iterator() {
+            return new Iterator<>() {
+
+                private int nextSub = subs.nextSetBit(0);
+
+                private int nextImpl = impls.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return nextSub >= 0 || nextImpl >= 0;
+                }
+
+                @Override
+                public JClass next() {
+                    if (nextSub >= 0) {
+                        JClass sub = interfaces.get(nextSub);
+                        nextSub = subs.nextSetBit(nextSub + 1);
+                        return sub;
+                    } else if (nextImpl >= 0) {
+                        JClass impl = classes.get(nextImpl);
+                        nextImpl = impls.nextSetBit(nextImpl + 1);
+                        return impl;
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return subs.cardinality() + impls.cardinality();
+        }
+    }
+}
@@ -23,21 +23,52 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import org.junit.Test;
+import pascal.taie.Main;
 import pascal.taie.analysis.Tests;
 import pascal.taie.analysis.dataflow.inter.InterConstantPropagation;
+import pascal.taie.analysis.dataflow.inter.LibrarySummaryBuilder;
 
 public class InterCPTest {
 
     private static final String CLASS_PATH = "src/test/resources/dataflow/constprop/inter";
 
     void test(String inputClass) {
+        test(inputClass, "edge-refine:false;alias-aware:false");
+    }
+
+    void test(String inputClass, String opts) {
+        test(inputClass, opts, "cha");
+    }
+
+    void test(String inputClass, String opts, String cgAlgorithm) {
         Tests.test(inputClass, CLASS_PATH, InterConstantPropagation.ID,
-                "edge-refine:false;alias-aware:false", "-a", "cg=algorithm:cha"
+                opts, "-a", "cg=algorithm:" + cgAlgorithm
                 // , "-a", "icfg=dump:true" // <-- uncomment this code if you want
                                             // to output ICFGs for the test cases
         );
     }
 
+    void testSummary(String inputClass) {
+        test(inputClass, "edge-refine:false;alias-aware:false;summary:true");
+    }
+
+    void testParallel(String inputClass) {
+        test(inputClass, "edge-refine:false;alias-aware:false;parallel:true");
+    }
+
+    void testLazyICFG(String inputClass) {
+        test(inputClass, "edge-refine:false;alias-aware:false;lazy-icfg:true");
+    }
+
+    void testCompactICFG(String inputClass) {
+        test(inputClass, "edge-refine:false;alias-aware:false;compact-icfg:true");
+    }
+
+    void testOnTheFlyCallGraph(String inputClass, String cgAlgorithm) {
+        test(inputClass, "edge-refine:false;alias-aware:false;on-the-fly-cg:true",
+                cgAlgorithm);
+    }
+
     @Test
     public void testExample() {
         test("Example");
@@ -57,4 +88,116 @@ public class InterCPTest {
     public void testMultiIntArgs() {
         test("MultiIntArgs");
     }
+
+    @Test
+    public void testSummaryExample() {
+        // each method of this case is called in only one context,
+        // thus the summary-based solving gives the same results
+        testSummary("Example");
+    }
+
+    @Test
+    public void testSummaryReference() {
+        testSummary("Reference");
+    }
+
+    @Test
+    public void testSummaryMultiContext() {
+        // same code as MultiIntArgs, but foo() returns a constant
+        // to each of its two call sites in summary mode
+        testSummary("MultiContext");
+    }
+
+    @Test
+    public void testSummaryLazyICFG() {
+        // the CFGs are built by the lazy ICFG when the summary-based
+        // solver first reaches each method
+        test("Example", "edge-refine:false;alias-aware:false;summary:true;lazy-icfg:true");
+    }
+
+    @Test
+    public void testIDE() {
+        // the int values of this case only flow through assignments and
+        // parameters, which linear constant propagation models precisely
+        test("Reference", "edge-refine:false;alias-aware:false;ide:true");
+    }
+
+    @Test
+    public void testLibrarySummary() {
+        // the hand-written summary of lib() differs from its body, so that
+        // the results show that the call result is given by the summary,
+        // and that lib() is not entered
+        test("LibSummary", "edge-refine:false;alias-aware:false;lib-summary:" +
+                CLASS_PATH + "/LibSummary-summaries.txt");
+    }
+
+    @Test
+    public void testLibrarySummaryCallback() {
+        // Objects.compare() calls back Cmp.compare(), thus it is not
+        // summarized, and Cmp.compare() is still analyzed
+        String file = "output/LibCallback-summaries.txt";
+        Main.main(new String[]{"-pp", "-cp", CLASS_PATH, "-m", "LibCallback",
+                "-a", LibrarySummaryBuilder.ID + "=file:" + file});
+        test("LibCallback", "edge-refine:false;alias-aware:false;lib-summary:" + file);
+    }
+
+    @Test
+    public void testParallelExample() {
+        testParallel("Example");
+    }
+
+    @Test
+    public void testParallelFibonacci() {
+        testParallel("Fibonacci");
+    }
+
+    @Test
+    public void testLazyICFGExample() {
+        testLazyICFG("Example");
+    }
+
+    @Test
+    public void testLazyICFGMultiIntArgs() {
+        testLazyICFG("MultiIntArgs");
+    }
+
+    @Test
+    public void testCompactICFGExample() {
+        testCompactICFG("Example");
+    }
+
+    @Test
+    public void testCompactICFGReference() {
+        testCompactICFG("Reference");
+    }
+
+    @Test
+    public void testOnTheFlyCallGraphExample() {
+        testOnTheFlyCallGraph("Example", "cha");
+    }
+
+    @Test
+    public void testOnTheFlyCallGraphReference() {
+        testOnTheFlyCallGraph("Reference", "cha");
+    }
+
+    @Test
+    public void testOnTheFlyCallGraphDeadOverrider() {
+        // the methods to compare come from the RTA call graph, which
+        // resolves b.get() to Base.get() only, as Derived is never
+        // instantiated. The on-the-fly call graph resolves it by CHA
+        // to Derived.get() as well, which returns 2, thus x is NAC,
+        // while the ICFG built on the RTA call graph gives x = 1.
+        testOnTheFlyCallGraph("DeadOverrider", "rta");
+    }
+
+    @Test
+    public void testOnTheFlyCallGraphDeadBranch() {
+        // c.get() is in a branch which is never taken as x is 0, thus
+        // the call site is not expanded and Callee.get() is not reached,
+        // though it is in the CHA call graph which gives the methods to
+        // compare. The results of main() are not compared, only those
+        // of the methods of Callee.
+        testOnTheFlyCallGraph("DeadBranchCall", "cha");
+    }
 }
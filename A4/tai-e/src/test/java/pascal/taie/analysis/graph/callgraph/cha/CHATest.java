@@ -22,13 +22,76 @@
 
 package pascal.taie.analysis.graph.callgraph.cha;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.graph.callgraph.CHABuilder;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.DefaultCallGraph;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.annotation.AnnotationHolder;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JClassBuilder;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Modifier;
+import pascal.taie.language.type.ClassType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 public class CHATest {
     
     protected static void test(String main) {
-        Tests.test(main, "src/test/resources/cha/", "cg", "algorithm:cha");
+        test(main, "algorithm:cha");
+    }
+
+    protected static void test(String main, String opts) {
+        Tests.test(main, "src/test/resources/cha/", "cg", opts);
+    }
+
+    protected static void testParallel(String main) {
+        test(main, "algorithm:cha;parallel:true");
+    }
+
+    /**
+     * Builds the CHA call graph of given test case after {@code prepare}
+     * is applied to the class hierarchy, patches the graph for
+     * {@code change} on the class of given name, and compares the patched
+     * graph with the graph built from scratch on the changed hierarchy.
+     */
+    private static void testUpdate(String main, String changed,
+                                   BiConsumer<ClassHierarchy, JClass> prepare,
+                                   BiConsumer<ClassHierarchy, JClass> change) {
+        test(main);
+        ClassHierarchy hierarchy = World.get().getClassHierarchy();
+        JClass jclass = hierarchy.getClass(changed);
+        prepare.accept(hierarchy, jclass);
+        CHABuilder builder = new CHABuilder();
+        DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+        builder.update(callGraph, List.of(jclass),
+                () -> change.accept(hierarchy, jclass));
+        CallGraph<Invoke, JMethod> rebuilt = new CHABuilder().build();
+        Assert.assertEquals(rebuilt.entryMethods().collect(Collectors.toSet()),
+                callGraph.entryMethods().collect(Collectors.toSet()));
+        Assert.assertEquals(rebuilt.reachableMethods().collect(Collectors.toSet()),
+                callGraph.reachableMethods().collect(Collectors.toSet()));
+        Assert.assertEquals(rebuilt.edges().collect(Collectors.toSet()),
+                callGraph.edges().collect(Collectors.toSet()));
+        // the methods of removed classes must not be reachable
+        Set<JClass> classes = hierarchy.allClasses().collect(Collectors.toSet());
+        callGraph.reachableMethods().forEach(method ->
+                Assert.assertTrue(method + " is not in the hierarchy",
+                        classes.contains(method.getDeclaringClass())));
     }
 
     @Test
@@ -50,4 +113,199 @@ public class CHATest {
     public void testAbstractMethod() {
         test("AbstractMethod");
     }
+
+    @Test
+    public void testParallelVirtualCall() {
+        testParallel("VirtualCall");
+    }
+
+    @Test
+    public void testParallelInterface() {
+        testParallel("Interface");
+    }
+
+    @Test
+    public void testStaticCallByRTA() {
+        // static calls are resolved as in CHA
+        test("StaticCall", "algorithm:rta");
+    }
+
+    @Test
+    public void testStaticCallByXTA() {
+        test("StaticCall", "algorithm:xta");
+    }
+
+    @Test
+    public void testNonInstantiatedByRTA() {
+        // C and the receiver type A are never instantiated,
+        // thus a.foo() is resolved to B.foo() only
+        test("NonInstantiated", "algorithm:rta");
+    }
+
+    @Test
+    public void testLocalInstantiationByXTA() {
+        // C is only instantiated in bar(), and never flows to main(),
+        // thus a.foo() is resolved to B.foo() only, while RTA also
+        // resolves it to C.foo()
+        test("LocalInstantiation", "algorithm:xta");
+    }
+
+    @Test
+    public void testUpdateAddClass() {
+        // C.foo() becomes a callee of b.foo() again
+        testUpdate("VirtualCall", "C",
+                ClassHierarchy::removeClass, ClassHierarchy::addClass);
+    }
+
+    @Test
+    public void testUpdateRemoveClass() {
+        // B, C and D are kept, but no longer inherit from A
+        testUpdate("VirtualCall", "A",
+                (hierarchy, jclass) -> {}, ClassHierarchy::removeClass);
+    }
+
+    @Test
+    public void testUpdateReplaceClass() {
+        // E is moved under B, thus E.foo() becomes a callee of b.foo()
+        testUpdate("VirtualCall", "E",
+                (hierarchy, jclass) -> {},
+                (hierarchy, jclass) -> hierarchy.replaceClass(jclass,
+                        new ClassCopy(jclass, hierarchy.getClass("B"))));
+    }
+
+    @Test
+    public void testSnapshot() {
+        String snapshot = "snapshot-file:output/VirtualCall-cg.snapshot";
+        test("VirtualCall", "algorithm:cha;snapshot:write;" + snapshot);
+        test("VirtualCall", "algorithm:cha;snapshot:read;" + snapshot);
+    }
+
+    @Test
+    public void testMissingSnapshot() {
+        // the call graph is built, and written to the missing snapshot
+        File file = new File("output/Interface-cg.snapshot");
+        file.delete();
+        test("Interface", "algorithm:cha;snapshot:read;snapshot-file:" + file);
+        Assert.assertTrue(file.exists());
+    }
+
+    @Test
+    public void testStaleSnapshot() {
+        // the snapshot of another program is stale, thus the call graph
+        // is built again instead of being read from the snapshot
+        String snapshot = "snapshot-file:output/stale-cg.snapshot";
+        test("StaticCall", "algorithm:cha;snapshot:write;" + snapshot);
+        test("VirtualCall", "algorithm:cha;snapshot:read;" + snapshot);
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException {
+        // the truncated snapshot ends in its method table, thus the call
+        // graph is built again, and written to a complete snapshot
+        File file = new File("output/truncated-cg.snapshot");
+        String snapshot = "snapshot-file:" + file;
+        test("VirtualCall", "algorithm:cha;snapshot:write;" + snapshot);
+        long size = file.length();
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE)) {
+            channel.truncate(48);
+        }
+        test("VirtualCall", "algorithm:cha;snapshot:read;" + snapshot);
+        Assert.assertEquals(size, file.length());
+    }
+
+    /**
+     * Builds a class with the same content as a given class,
+     * except for its superclass.
+     */
+    private static class ClassCopy implements JClassBuilder {
+
+        private final Set<Modifier> modifiers;
+
+        private final String simpleName;
+
+        private final ClassType type;
+
+        private final JClass superClass;
+
+        private final Collection<JClass> interfaces;
+
+        private final JClass outerClass;
+
+        private final Collection<JField> fields;
+
+        private final Collection<JMethod> methods;
+
+        private final AnnotationHolder annotationHolder;
+
+        private final boolean isApplication;
+
+        private ClassCopy(JClass jclass, JClass superClass) {
+            modifiers = jclass.getModifiers();
+            simpleName = jclass.getSimpleName();
+            type = jclass.getType();
+            this.superClass = superClass;
+            interfaces = List.copyOf(jclass.getInterfaces());
+            outerClass = jclass.getOuterClass();
+            fields = List.copyOf(jclass.getDeclaredFields());
+            methods = List.copyOf(jclass.getDeclaredMethods());
+            annotationHolder = AnnotationHolder.make(jclass.getAnnotations());
+            isApplication = jclass.isApplication();
+        }
+
+        @Override
+        public void build(JClass jclass) {
+            jclass.build(this);
+        }
+
+        @Override
+        public Set<Modifier> getModifiers() {
+            return modifiers;
+        }
+
+        @Override
+        public String getSimpleName() {
+            return simpleName;
+        }
+
+        @Override
+        public ClassType getClassType() {
+            return type;
+        }
+
+        @Override
+        public JClass getSuperClass() {
+            return superClass;
+        }
+
+        @Override
+        public Collection<JClass> getInterfaces() {
+            return interfaces;
+        }
+
+        @Override
+        public JClass getOuterClass() {
+            return outerClass;
+        }
+
+        @Override
+        public Collection<JField> getDeclaredFields() {
+            return fields;
+        }
+
+        @Override
+        public Collection<JMethod> getDeclaredMethods() {
+            return methods;
+        }
+
+        @Override
+        public AnnotationHolder getAnnotationHolder() {
+            return annotationHolder;
+        }
+
+        @Override
+        public boolean isApplication() {
+            return isApplication;
+        }
+    }
 }
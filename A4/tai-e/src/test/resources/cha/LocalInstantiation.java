@@ -0,0 +1,27 @@
+public class LocalInstantiation {
+
+    public static void main(String[] args) {
+        A a = new B();
+        a.foo();
+        bar();
+    }
+
+    static void bar() {
+        C c = new C();
+    }
+}
+
+class A {
+    void foo() {
+    }
+}
+
+class B extends A {
+    void foo() {
+    }
+}
+
+class C extends A {
+    void foo() {
+    }
+}
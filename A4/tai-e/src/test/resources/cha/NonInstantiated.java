@@ -0,0 +1,22 @@
+public class NonInstantiated {
+
+    public static void main(String[] args) {
+        A a = new B();
+        a.foo();
+    }
+}
+
+class A {
+    void foo() {
+    }
+}
+
+class B extends A {
+    void foo() {
+    }
+}
+
+class C extends A {
+    void foo() {
+    }
+}
@@ -0,0 +1,18 @@
+public class DeadBranchCall {
+
+    public static void main(String[] args) {
+        int x = 0;
+        Callee c = new Callee();
+        if (x > 0) {
+            x = c.get();
+        }
+        int y = x;
+    }
+}
+
+class Callee {
+    int get() {
+        int v = 1;
+        return v;
+    }
+}
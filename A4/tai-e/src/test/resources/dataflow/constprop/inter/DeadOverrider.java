@@ -0,0 +1,19 @@
+public class DeadOverrider {
+
+    public static void main(String[] args) {
+        Base b = new Base();
+        int x = b.get(1);
+    }
+}
+
+class Base {
+    int get(int v) {
+        return v;
+    }
+}
+
+class Derived extends Base {
+    int get(int v) {
+        return v + 1;
+    }
+}
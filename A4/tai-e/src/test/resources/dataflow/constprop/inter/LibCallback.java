@@ -0,0 +1,18 @@
+import java.util.Comparator;
+import java.util.Objects;
+
+public class LibCallback {
+
+    public static void main(String[] args) {
+        Object a = new Object();
+        Object b = new Object();
+        int c = Objects.compare(a, b, new Cmp());
+    }
+}
+
+class Cmp implements Comparator<Object> {
+    public int compare(Object x, Object y) {
+        int r = 1;
+        return r;
+    }
+}
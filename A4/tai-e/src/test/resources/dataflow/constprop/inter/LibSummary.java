@@ -0,0 +1,11 @@
+public class LibSummary {
+
+    static int lib(int x) {
+        return x;
+    }
+
+    public static void main(String[] args) {
+        int a = 3;
+        int b = lib(a);
+    }
+}
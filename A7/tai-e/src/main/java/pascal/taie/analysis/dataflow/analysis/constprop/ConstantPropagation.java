@@ -56,33 +56,53 @@ public class ConstantPropagation extends
 
     @Override
     public CPFact newBoundaryFact(CFG<Stmt> cfg) {
-        // TODO - finish me
-        return null;
+        // the values of the parameters are unknown
+        CPFact fact = new CPFact();
+        IR ir = cfg.getIR();
+        ir.getParams().forEach(param -> {
+            if (canHoldInt(param)) {
+                fact.update(param, Value.getNAC());
+            }
+        });
+        return fact;
     }
 
     @Override
     public CPFact newInitialFact() {
-        // TODO - finish me
-        return null;
+        return new CPFact();
     }
 
     @Override
     public void meetInto(CPFact fact, CPFact target) {
-        // TODO - finish me
+        fact.forEach((var, value) ->
+                target.update(var, meetValue(value, target.get(var))));
     }
 
     /**
      * Meets two Values.
      */
     public Value meetValue(Value v1, Value v2) {
-        // TODO - finish me
-        return null;
+        if (v1.isNAC() || v2.isNAC()) {
+            return Value.getNAC();
+        } else if (v1.isUndef()) {
+            return v2;
+        } else if (v2.isUndef()) {
+            return v1;
+        } else {
+            return v1.equals(v2) ? v1 : Value.getNAC();
+        }
     }
 
     @Override
     public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        if (stmt instanceof DefinitionStmt<?, ?> defStmt &&
+                defStmt.getLValue() instanceof Var def &&
+                canHoldInt(def)) {
+            CPFact newOut = in.copy();
+            newOut.update(def, evaluate(defStmt.getRValue(), in));
+            return out.copyFrom(newOut);
+        }
+        return out.copyFrom(in);
     }
 
     /**
@@ -111,7 +131,76 @@ public class ConstantPropagation extends
      * @return the resulting {@link Value}
      */
     public static Value evaluate(Exp exp, CPFact in) {
-        // TODO - finish me
-        return null;
+        if (exp instanceof IntLiteral literal) {
+            return Value.makeConstant(literal.getValue());
+        } else if (exp instanceof Var var) {
+            return valueOf(var, in);
+        } else if (exp instanceof BinaryExp binary) {
+            Value v1 = valueOf(binary.getOperand1(), in);
+            Value v2 = valueOf(binary.getOperand2(), in);
+            if (v2.isConstant() && v2.getConstant() == 0 &&
+                    binary instanceof ArithmeticExp arithmetic &&
+                    (arithmetic.getOperator() == ArithmeticExp.Op.DIV ||
+                            arithmetic.getOperator() == ArithmeticExp.Op.REM)) {
+                // division by zero never produces a value
+                return Value.getUndef();
+            }
+            if (v1.isConstant() && v2.isConstant()) {
+                return Value.makeConstant(evaluate(binary.getOperator(),
+                        v1.getConstant(), v2.getConstant()));
+            } else if (v1.isNAC() || v2.isNAC()) {
+                return Value.getNAC();
+            } else {
+                return Value.getUndef();
+            }
+        }
+        // other expressions, e.g., method calls and field loads,
+        // are conservatively treated as NAC
+        return Value.getNAC();
+    }
+
+    /**
+     * @return the value of given variable in given fact, or the int
+     * constant held by the variable if it is a temporary constant.
+     */
+    private static Value valueOf(Var var, CPFact in) {
+        return var.isTempConst() &&
+                var.getTempConstValue() instanceof IntLiteral literal ?
+                Value.makeConstant(literal.getValue()) : in.get(var);
+    }
+
+    private static int evaluate(BinaryExp.Op op, int i1, int i2) {
+        if (op instanceof ArithmeticExp.Op arithmeticOp) {
+            return switch (arithmeticOp) {
+                case ADD -> i1 + i2;
+                case SUB -> i1 - i2;
+                case MUL -> i1 * i2;
+                case DIV -> i1 / i2;
+                case REM -> i1 % i2;
+            };
+        } else if (op instanceof BitwiseExp.Op bitwiseOp) {
+            return switch (bitwiseOp) {
+                case OR -> i1 | i2;
+                case AND -> i1 & i2;
+                case XOR -> i1 ^ i2;
+            };
+        } else if (op instanceof ConditionExp.Op conditionOp) {
+            boolean result = switch (conditionOp) {
+                case EQ -> i1 == i2;
+                case NE -> i1 != i2;
+                case LT -> i1 < i2;
+                case GT -> i1 > i2;
+                case LE -> i1 <= i2;
+                case GE -> i1 >= i2;
+            };
+            return result ? 1 : 0;
+        } else if (op instanceof ShiftExp.Op shiftOp) {
+            return switch (shiftOp) {
+                case SHL -> i1 << i2;
+                case SHR -> i1 >> i2;
+                case USHR -> i1 >>> i2;
+            };
+        }
+        throw new AnalysisException("Unexpected operator: " + op);
     }
 }
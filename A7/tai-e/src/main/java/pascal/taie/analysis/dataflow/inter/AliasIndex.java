@@ -0,0 +1,117 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.FieldStmt;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+
+import java.util.Set;
+
+/**
+ * Index of the heap accesses for alias-aware {@link InterConstantPropagation},
+ * built once from the points-to sets of the reachable methods.
+ * <p>
+ * Each load and store is mapped to the abstract heap locations it may
+ * access, i.e., (object, field) for instance fields, field for static
+ * fields, and object for array elements, and each location is mapped to
+ * the loads which may read it. The points-to set of the base of each
+ * access is thus looked up only once, and the analysis can keep the
+ * values stored to each location in a table instead of visiting all
+ * aliasing stores of a load.
+ */
+class AliasIndex {
+
+    /**
+     * Map from load/store to the locations it may access.
+     */
+    private final MultiMap<Stmt, Location> accesses = Maps.newMultiMap();
+
+    /**
+     * Map from location to the loads which may read it.
+     */
+    private final MultiMap<Location, Stmt> loads = Maps.newMultiMap();
+
+    AliasIndex(PointerAnalysisResult pta) {
+        pta.getCallGraph().reachableMethods()
+                .map(JMethod::getIR)
+                .forEach(ir -> ir.forEach(stmt -> {
+                    if (stmt instanceof FieldStmt<?, ?> fieldStmt) {
+                        JField field = fieldStmt.getFieldRef().resolve();
+                        if (fieldStmt.isStatic()) {
+                            addAccess(stmt, new Location(null, field));
+                        } else {
+                            Var base = ((InstanceFieldAccess) fieldStmt
+                                    .getFieldAccess()).getBase();
+                            pta.getPointsToSet(base).forEach(obj ->
+                                    addAccess(stmt, new Location(obj, field)));
+                        }
+                    } else if (stmt instanceof LoadArray load) {
+                        pta.getPointsToSet(load.getArrayAccess().getBase())
+                                .forEach(obj -> addAccess(stmt, new Location(obj, null)));
+                    } else if (stmt instanceof StoreArray store) {
+                        pta.getPointsToSet(store.getArrayAccess().getBase())
+                                .forEach(obj -> addAccess(stmt, new Location(obj, null)));
+                    }
+                }));
+    }
+
+    private void addAccess(Stmt stmt, Location location) {
+        accesses.put(stmt, location);
+        if (stmt instanceof LoadField || stmt instanceof LoadArray) {
+            loads.put(location, stmt);
+        }
+    }
+
+    /**
+     * @return the locations which may be accessed by given load/store.
+     */
+    Set<Location> getLocationsOf(Stmt access) {
+        return accesses.get(access);
+    }
+
+    /**
+     * @return the loads which may read given location.
+     */
+    Set<Stmt> getLoadsOf(Location location) {
+        return loads.get(location);
+    }
+
+    /**
+     * Abstract heap location, i.e., instance field of an object,
+     * static field (obj is null), or elements of an array object
+     * (field is null).
+     */
+    record Location(Obj obj, JField field) {
+    }
+}
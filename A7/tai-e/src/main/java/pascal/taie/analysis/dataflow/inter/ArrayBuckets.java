@@ -0,0 +1,100 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Values written to the elements of an array object by array stores,
+ * grouped into one bucket for each constant index and one bucket for
+ * the NAC index, for alias-aware {@link InterConstantPropagation}.
+ * <p>
+ * A load at a constant index only reads its constant bucket and the
+ * NAC bucket, and a load at the NAC index reads all buckets. As the
+ * index of a store may change during solving, i.e., from constant to
+ * NAC, the store is moved between buckets on each write.
+ */
+class ArrayBuckets {
+
+    /**
+     * Map from constant index to the values written by each store
+     * at the index.
+     */
+    private final Map<Integer, Map<StoreArray, Value>> constBuckets = Maps.newMap();
+
+    /**
+     * Values written by each store at the NAC index.
+     */
+    private final Map<StoreArray, Value> nacBucket = Maps.newHybridMap();
+
+    /**
+     * Map from store to the latest index it has written.
+     */
+    private final Map<StoreArray, Value> indexes = Maps.newHybridMap();
+
+    /**
+     * Records that given store writes given value at given index.
+     *
+     * @return true if the values of this array changed, otherwise false.
+     */
+    boolean write(StoreArray store, Value index, Value value) {
+        if (index.isUndef()) {
+            return false;
+        }
+        Value oldIndex = indexes.put(store, index);
+        if (oldIndex != null && !oldIndex.equals(index)) {
+            bucketOf(oldIndex).remove(store);
+        }
+        return !value.equals(bucketOf(index).put(store, value)) ||
+                !index.equals(oldIndex);
+    }
+
+    /**
+     * @return the values which may be read at given index.
+     */
+    Stream<Value> read(Value index) {
+        if (index.isUndef()) {
+            return Stream.empty();
+        } else if (index.isNAC()) {
+            return Stream.concat(nacBucket.values().stream(),
+                    constBuckets.values()
+                            .stream()
+                            .flatMap(bucket -> bucket.values().stream()));
+        } else {
+            Map<StoreArray, Value> bucket = constBuckets.get(index.getConstant());
+            return bucket == null ? nacBucket.values().stream() :
+                    Stream.concat(bucket.values().stream(),
+                            nacBucket.values().stream());
+        }
+    }
+
+    private Map<StoreArray, Value> bucketOf(Value index) {
+        return index.isNAC() ? nacBucket : constBuckets.computeIfAbsent(
+                index.getConstant(), __ -> Maps.newHybridMap());
+    }
+}
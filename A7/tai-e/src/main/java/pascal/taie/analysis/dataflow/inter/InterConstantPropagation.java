@@ -25,6 +25,8 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.dataflow.inter.AliasIndex.Location;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
@@ -37,8 +39,16 @@ import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
 import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of interprocedural constant propagation for int values.
@@ -50,6 +60,22 @@ public class InterConstantPropagation extends
 
     private final ConstantPropagation cp;
 
+    /**
+     * Index of the aliasing loads and stores, or null if this analysis
+     * is not alias-aware.
+     */
+    private AliasIndex aliasIndex;
+
+    /**
+     * Map from field location to the meet of the values stored to it.
+     */
+    private final Map<Location, Value> fieldValues = Maps.newMap();
+
+    /**
+     * Map from array location to the values written to its elements.
+     */
+    private final Map<Location, ArrayBuckets> arrayValues = Maps.newMap();
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
@@ -59,7 +85,9 @@ public class InterConstantPropagation extends
     protected void initialize() {
         String ptaId = getOptions().getString("pta");
         PointerAnalysisResult pta = World.get().getResult(ptaId);
-        // You can do initialization work here
+        if (getOptions().getBoolean("alias-aware")) {
+            aliasIndex = new AliasIndex(pta);
+        }
     }
 
     @Override
@@ -85,37 +113,141 @@ public class InterConstantPropagation extends
 
     @Override
     protected boolean transferCallNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        CPFact newOut = in.copy();
+        // kill the defined var, its value flows along the return edges
+        Var def = ((Invoke) stmt).getLValue();
+        if (def != null) {
+            newOut.remove(def);
+        }
+        return out.copyFrom(newOut);
     }
 
     @Override
     protected boolean transferNonCallNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        if (aliasIndex == null) {
+            return cp.transferNode(stmt, in, out);
+        }
+        if (stmt instanceof StoreField store) {
+            storeField(store, in);
+        } else if (stmt instanceof StoreArray store) {
+            storeArray(store, in);
+        }
+        Var loaded = stmt instanceof LoadField load ? load.getLValue() :
+                stmt instanceof LoadArray load ? load.getLValue() : null;
+        if (loaded != null && ConstantPropagation.canHoldInt(loaded)) {
+            CPFact newOut = in.copy();
+            newOut.update(loaded, stmt instanceof LoadArray load ?
+                    loadArray(load, in) : loadField(stmt));
+            return out.copyFrom(newOut);
+        }
+        return cp.transferNode(stmt, in, out);
+    }
+
+    /**
+     * Meets the value stored by given store into the values of the
+     * locations it may write. The loads of the changed locations are
+     * added to the work-list.
+     */
+    private void storeField(StoreField store, CPFact in) {
+        if (!ConstantPropagation.canHoldInt(store.getRValue())) {
+            return;
+        }
+        Value value = ConstantPropagation.evaluate(store.getRValue(), in);
+        for (Location location : aliasIndex.getLocationsOf(store)) {
+            Value oldValue = fieldValues.getOrDefault(location, Value.getUndef());
+            Value newValue = cp.meetValue(oldValue, value);
+            if (!newValue.equals(oldValue)) {
+                fieldValues.put(location, newValue);
+                aliasIndex.getLoadsOf(location).forEach(solver::addToWorkList);
+            }
+        }
+    }
+
+    /**
+     * Writes the value of given store into the buckets of the array
+     * locations it may write. The loads of the changed locations are
+     * added to the work-list.
+     */
+    private void storeArray(StoreArray store, CPFact in) {
+        if (!ConstantPropagation.canHoldInt(store.getRValue())) {
+            return;
+        }
+        Value index = ConstantPropagation.evaluate(
+                store.getArrayAccess().getIndex(), in);
+        Value value = ConstantPropagation.evaluate(store.getRValue(), in);
+        for (Location location : aliasIndex.getLocationsOf(store)) {
+            if (arrayValues.computeIfAbsent(location, __ -> new ArrayBuckets())
+                    .write(store, index, value)) {
+                aliasIndex.getLoadsOf(location).forEach(solver::addToWorkList);
+            }
+        }
+    }
+
+    /**
+     * @return the meet of the values of the locations read by given load.
+     */
+    private Value loadField(Stmt load) {
+        Value value = Value.getUndef();
+        for (Location location : aliasIndex.getLocationsOf(load)) {
+            value = cp.meetValue(value,
+                    fieldValues.getOrDefault(location, Value.getUndef()));
+        }
+        return value;
+    }
+
+    /**
+     * @return the meet of the values written to the array locations read
+     * by given load, at indexes which may alias the index of the load.
+     */
+    private Value loadArray(LoadArray load, CPFact in) {
+        Value index = ConstantPropagation.evaluate(
+                load.getArrayAccess().getIndex(), in);
+        Value value = Value.getUndef();
+        for (Location location : aliasIndex.getLocationsOf(load)) {
+            ArrayBuckets buckets = arrayValues.get(location);
+            if (buckets != null) {
+                value = buckets.read(index).reduce(value, cp::meetValue);
+            }
+        }
+        return value;
     }
 
     @Override
     protected CPFact transferNormalEdge(NormalEdge<Stmt> edge, CPFact out) {
-        // TODO - finish me
-        return null;
+        return out;
     }
 
     @Override
     protected CPFact transferCallToReturnEdge(CallToReturnEdge<Stmt> edge, CPFact out) {
-        // TODO - finish me
-        return null;
+        // the defined var has been killed by transferCallNode()
+        return out;
     }
 
     @Override
     protected CPFact transferCallEdge(CallEdge<Stmt> edge, CPFact callSiteOut) {
-        // TODO - finish me
-        return null;
+        CPFact fact = new CPFact();
+        InvokeExp invokeExp = ((Invoke) edge.getSource()).getInvokeExp();
+        List<Var> params = edge.getCallee().getIR().getParams();
+        for (int i = 0; i < params.size(); ++i) {
+            if (ConstantPropagation.canHoldInt(params.get(i))) {
+                fact.update(params.get(i), ConstantPropagation.evaluate(
+                        invokeExp.getArg(i), callSiteOut));
+            }
+        }
+        return fact;
     }
 
     @Override
     protected CPFact transferReturnEdge(ReturnEdge<Stmt> edge, CPFact returnOut) {
-        // TODO - finish me
-        return null;
+        CPFact fact = new CPFact();
+        Var def = ((Invoke) edge.getCallSite()).getLValue();
+        if (def != null && ConstantPropagation.canHoldInt(def)) {
+            Value value = Value.getUndef();
+            for (Var ret : edge.getReturnVars()) {
+                value = cp.meetValue(value, ConstantPropagation.evaluate(ret, returnOut));
+            }
+            fact.update(def, value);
+        }
+        return fact;
     }
 }
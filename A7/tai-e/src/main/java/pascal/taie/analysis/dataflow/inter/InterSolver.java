@@ -24,11 +24,9 @@ package pascal.taie.analysis.dataflow.inter;
 
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.icfg.ICFG;
-import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.Sets;
 
-import java.util.Queue;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Solver for inter-procedural data-flow analysis.
@@ -43,7 +41,7 @@ class InterSolver<Method, Node, Fact> {
 
     private DataflowResult<Node, Fact> result;
 
-    private Queue<Node> workList;
+    private InterWorkList<Method, Node> workList;
 
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
                 ICFG<Method, Node> icfg) {
@@ -59,10 +57,43 @@ class InterSolver<Method, Node, Fact> {
     }
 
     private void initialize() {
-        // TODO - finish me
+        for (Node node : icfg) {
+            result.setOutFact(node, analysis.newInitialFact());
+            result.setInFact(node, analysis.newInitialFact());
+        }
+        // initialize entry node of each entry method
+        icfg.entryMethods().forEach(m -> {
+            result.setOutFact(icfg.getEntryOf(m), analysis.newBoundaryFact(icfg.getEntryOf(m)));
+        });
     }
 
     private void doSolve() {
-        // TODO - finish me
+        workList = new InterWorkList<>(icfg);
+        // nodes which have been processed at least once
+        Set<Node> visited = Sets.newSet(icfg.getNumberOfNodes());
+        icfg.entryMethods().forEach(m -> workList.add(icfg.getEntryOf(m)));
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            // meet out of all transferred predecessors to the current node's in
+            Fact in = result.getInFact(node);
+            icfg.getInEdgesOf(node).forEach(e -> analysis.meetInto(
+                    analysis.transferEdge(e, result.getOutFact(e.getSource())), in));
+            // transfer node
+            boolean changed = analysis.transferNode(node, in, result.getOutFact(node));
+            // successors must be processed at least once after the node
+            // is reached, even if the out fact of the node does not change
+            if (visited.add(node) | changed) {
+                icfg.getSuccsOf(node).forEach(workList::add);
+            }
+        }
+    }
+
+    /**
+     * Adds given node to the work-list, so that it is processed again
+     * when the facts it depends on, other than the out facts of its
+     * predecessors, have changed.
+     */
+    void addToWorkList(Node node) {
+        workList.add(node);
     }
 }
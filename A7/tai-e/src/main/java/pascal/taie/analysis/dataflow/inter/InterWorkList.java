@@ -0,0 +1,209 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Priority work-list of ICFG nodes for {@link InterSolver}.
+ * <p>
+ * Each node is numbered once, first by the topological (reverse post-)
+ * order of its containing method in the call graph, then by the reverse
+ * post-order of the node in the CFG of the method. The work-list always
+ * returns the node with the smallest number, so that a node is usually
+ * processed after its predecessors, and a node is never held twice
+ * in the work-list.
+ */
+class InterWorkList<Method, Node> {
+
+    /**
+     * Map from node to its number.
+     */
+    private final Map<Node, Integer> numbers;
+
+    /**
+     * Nodes indexed by their numbers.
+     */
+    private final List<Node> nodes;
+
+    /**
+     * Numbers of the nodes which are currently in the work-list.
+     */
+    private final BitSet inQueue;
+
+    /**
+     * Binary min-heap of node numbers.
+     */
+    private int[] heap = new int[16];
+
+    private int size = 0;
+
+    InterWorkList(ICFG<Method, Node> icfg) {
+        int nodeCount = icfg.getNumberOfNodes();
+        numbers = Maps.newMap(nodeCount);
+        nodes = new ArrayList<>(nodeCount);
+        inQueue = new BitSet(nodeCount);
+        Map<Method, List<Node>> callSites = Maps.newMap();
+        for (Node node : icfg) {
+            if (icfg.isCallSite(node)) {
+                callSites.computeIfAbsent(icfg.getContainingMethodOf(node),
+                        __ -> new ArrayList<>()).add(node);
+            }
+        }
+        List<Method> methods = reversePostOrder(
+                icfg.entryMethods().toList(),
+                method -> callSites.getOrDefault(method, List.of())
+                        .stream()
+                        .flatMap(callSite -> icfg.getCalleesOf(callSite).stream())
+                        .toList());
+        for (Method method : methods) {
+            reversePostOrder(List.of(icfg.getEntryOf(method)),
+                    node -> icfg.getOutEdgesOf(node)
+                            .stream()
+                            .filter(e -> !(e instanceof CallEdge) &&
+                                    !(e instanceof ReturnEdge))
+                            .map(ICFGEdge::getTarget)
+                            .toList())
+                    .forEach(this::number);
+        }
+        // nodes which are not reachable from entry methods
+        icfg.forEach(this::number);
+    }
+
+    private void number(Node node) {
+        if (!numbers.containsKey(node)) {
+            numbers.put(node, nodes.size());
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Adds a node to this work-list if it is not in the work-list.
+     *
+     * @return true if the node is added, otherwise false.
+     */
+    boolean add(Node node) {
+        int number = numbers.get(node);
+        if (inQueue.get(number)) {
+            return false;
+        }
+        inQueue.set(number);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        // sift up
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= number) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = number;
+        return true;
+    }
+
+    /**
+     * Retrieves and removes the node with the smallest number.
+     */
+    Node poll() {
+        int first = heap[0];
+        int last = heap[--size];
+        // sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                ++child;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        inQueue.clear(first);
+        return nodes.get(first);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Computes the reverse post-order of the nodes reachable from roots.
+     * The depth-first search is iterative, so that it does not overflow
+     * the stack on deep graphs.
+     */
+    private static <N> List<N> reversePostOrder(
+            Collection<N> roots, Function<N, Collection<N>> succs) {
+        List<N> postOrder = new ArrayList<>();
+        Set<N> visited = Sets.newSet();
+        Deque<N> stack = new ArrayDeque<>();
+        Deque<Iterator<N>> iterators = new ArrayDeque<>();
+        for (N root : roots) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            stack.push(root);
+            iterators.push(succs.apply(root).iterator());
+            while (!stack.isEmpty()) {
+                Iterator<N> it = iterators.peek();
+                if (it.hasNext()) {
+                    N succ = it.next();
+                    if (visited.add(succ)) {
+                        stack.push(succ);
+                        iterators.push(succs.apply(succ).iterator());
+                    }
+                } else {
+                    postOrder.add(stack.pop());
+                    iterators.pop();
+                }
+            }
+        }
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+}